@@ -0,0 +1,292 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.switchyard.rhq.plugin.model.Application;
+import org.switchyard.rhq.plugin.model.ComponentReference;
+import org.switchyard.rhq.plugin.model.ComponentService;
+import org.switchyard.rhq.plugin.model.ComponentServiceMetrics;
+import org.switchyard.rhq.plugin.model.Metrics;
+import org.switchyard.rhq.plugin.model.Reference;
+import org.switchyard.rhq.plugin.model.ReferenceMetrics;
+import org.switchyard.rhq.plugin.model.Service;
+import org.switchyard.rhq.plugin.model.ServiceMetrics;
+
+/**
+ * The call graph of an application, from the promoted services through the component services
+ * and their references to the composite references, annotated with the cached metrics.
+ */
+public class ApplicationCallGraph {
+    /**
+     * The node type of a service.
+     */
+    public static final String TYPE_SERVICE = "service";
+    /**
+     * The node type of a component service.
+     */
+    public static final String TYPE_COMPONENT_SERVICE = "componentService";
+    /**
+     * The node type of a component reference.
+     */
+    public static final String TYPE_COMPONENT_REFERENCE = "componentReference";
+    /**
+     * The node type of a reference.
+     */
+    public static final String TYPE_REFERENCE = "reference";
+
+    /**
+     * A node within the call graph.
+     */
+    public static class Node {
+        private final String type;
+        private final String name;
+        private final Metrics metrics;
+        private final List<Node> children = new ArrayList<Node>();
+        private int callers;
+
+        Node(final String type, final String name, final Metrics metrics) {
+            this.type = type;
+            this.name = name;
+            this.metrics = metrics;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * The metrics of the node, or null if none are available.
+         */
+        public Metrics getMetrics() {
+            return metrics;
+        }
+
+        public List<Node> getChildren() {
+            return children;
+        }
+
+        void addChild(final Node child) {
+            children.add(child);
+            child.callers++;
+        }
+
+        public long getTotalTime() {
+            return (metrics != null ? metrics.getTotalTime() : 0);
+        }
+
+        /**
+         * The processing time not accounted for by the children of the node.  The total time of a
+         * child invoked from several nodes is divided evenly between them, as the metrics do not say
+         * which caller it was spent on, and the result is never less than 0 as the metrics of the
+         * node and its children are not read at the same instant.
+         */
+        public long getSelfTime() {
+            long childTime = 0;
+            for (Node child: children) {
+                childTime += child.getTotalTime() / Math.max(child.callers, 1);
+            }
+            return Math.max(getTotalTime() - childTime, 0);
+        }
+    }
+
+    private final List<Node> entryNodes = new ArrayList<Node>();
+    private final List<Node> nodes = new ArrayList<Node>();
+
+    public ApplicationCallGraph(final Application application, final Map<String, ServiceMetrics> serviceMetrics,
+            final Map<String, ReferenceMetrics> referenceMetrics,
+            final Map<String, ComponentServiceMetrics> componentServiceMetrics) {
+        final Map<String, Node> referenceNodes = new LinkedHashMap<String, Node>();
+        for (Reference reference: application.getReferences().values()) {
+            final String name = reference.getName().toString();
+            referenceNodes.put(name, createNode(TYPE_REFERENCE, reference.getName(), get(referenceMetrics, name)));
+        }
+
+        final Map<String, Node> componentServiceNodes = new LinkedHashMap<String, Node>();
+        for (ComponentService componentService: application.getComponentServices().values()) {
+            final String name = componentService.getName().toString();
+            componentServiceNodes.put(name, createNode(TYPE_COMPONENT_SERVICE, componentService.getName(),
+                    get(componentServiceMetrics, name)));
+        }
+
+        for (ComponentService componentService: application.getComponentServices().values()) {
+            final String name = componentService.getName().toString();
+            final Node componentServiceNode = componentServiceNodes.get(name);
+            final ComponentServiceMetrics metrics = get(componentServiceMetrics, name);
+            for (ComponentReference componentReference: componentService.getReferences().values()) {
+                final QName referenceName = componentReference.getName();
+                final Node componentReferenceNode = createNode(TYPE_COMPONENT_REFERENCE, referenceName,
+                        (metrics != null ? metrics.getComponentReferenceMetrics().get(referenceName.toString()) : null));
+                componentServiceNode.addChild(componentReferenceNode);
+
+                Node target = null;
+                for (Reference reference: application.getReferences().values()) {
+                    if (isPromotedReference(reference.getPromotedReference(), referenceName)) {
+                        target = referenceNodes.get(reference.getName().toString());
+                        break;
+                    }
+                }
+                if (target == null) {
+                    target = findByLocalName(componentServiceNodes, application.getComponentServices(), referenceName);
+                }
+                if (target != null) {
+                    componentReferenceNode.addChild(target);
+                }
+            }
+        }
+
+        for (Service service: application.getServices().values()) {
+            final Node serviceNode = createNode(TYPE_SERVICE, service.getName(), get(serviceMetrics, service.getName().toString()));
+            final QName promotedService = service.getPromotedService();
+            if (promotedService != null) {
+                final Node target = findByLocalName(componentServiceNodes, application.getComponentServices(), promotedService);
+                if (target != null) {
+                    serviceNode.addChild(target);
+                }
+            }
+            entryNodes.add(serviceNode);
+        }
+    }
+
+    private Node createNode(final String type, final QName name, final Metrics metrics) {
+        final Node node = new Node(type, name.getLocalPart(), metrics);
+        nodes.add(node);
+        return node;
+    }
+
+    private static <T> T get(final Map<String, T> map, final String key) {
+        return (map != null ? map.get(key) : null);
+    }
+
+    private static Node findByLocalName(final Map<String, Node> componentServiceNodes,
+            final Map<String, ComponentService> componentServices, final QName name) {
+        final Node node = componentServiceNodes.get(name.toString());
+        if (node != null) {
+            return node;
+        }
+        for (ComponentService componentService: componentServices.values()) {
+            if (componentService.getName().getLocalPart().equals(name.getLocalPart())) {
+                return componentServiceNodes.get(componentService.getName().toString());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the promoted reference, which may be qualified by its component, names the component reference.
+     */
+    private static boolean isPromotedReference(final String promotedReference, final QName referenceName) {
+        if (promotedReference == null) {
+            return false;
+        }
+        final String localPart = referenceName.getLocalPart();
+        return promotedReference.equals(referenceName.toString()) || promotedReference.equals(localPart)
+                || promotedReference.endsWith("/" + localPart);
+    }
+
+    /**
+     * The services through which invocations enter the application.
+     */
+    public List<Node> getEntryNodes() {
+        return entryNodes;
+    }
+
+    /**
+     * Every node reachable from the entry nodes, with the node that invokes it.
+     */
+    public List<Node[]> getEdges() {
+        final List<Node[]> edges = new ArrayList<Node[]>();
+        final Set<Node> visited = new HashSet<Node>();
+        for (Node entryNode: entryNodes) {
+            addEdges(entryNode, edges, visited);
+        }
+        return edges;
+    }
+
+    private static void addEdges(final Node node, final List<Node[]> edges, final Set<Node> visited) {
+        if (visited.add(node)) {
+            for (Node child: node.getChildren()) {
+                edges.add(new Node[] {node, child});
+                addEdges(child, edges, visited);
+            }
+        }
+    }
+
+    /**
+     * The path from the entry service with the highest total time, following the child
+     * with the highest total time at each step.
+     */
+    public List<Node> getCriticalPath() {
+        final List<Node> path = new ArrayList<Node>();
+        Node node = heaviest(entryNodes, Collections.<Node>emptySet());
+        while (node != null) {
+            path.add(node);
+            node = heaviest(node.getChildren(), path);
+        }
+        return path;
+    }
+
+    private static Node heaviest(final List<Node> candidates, final Iterable<Node> excluded) {
+        Node heaviest = null;
+        for (Node candidate: candidates) {
+            if (!contains(excluded, candidate) && ((heaviest == null) || (candidate.getTotalTime() > heaviest.getTotalTime()))) {
+                heaviest = candidate;
+            }
+        }
+        return heaviest;
+    }
+
+    private static boolean contains(final Iterable<Node> nodes, final Node node) {
+        for (Node entry: nodes) {
+            if (entry == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The nodes contributing the most processing time of their own, highest first.
+     * 
+     * @param limit The maximum number of nodes to return.
+     */
+    public List<Node> getLargestContributors(final int limit) {
+        final List<Node> contributors = new ArrayList<Node>();
+        for (Node node: nodes) {
+            if (node.getSelfTime() > 0) {
+                contributors.add(node);
+            }
+        }
+        Collections.sort(contributors, new Comparator<Node>() {
+            public int compare(final Node first, final Node second) {
+                return (first.getSelfTime() < second.getSelfTime() ? 1 : (first.getSelfTime() > second.getSelfTime() ? -1 : 0));
+            }
+        });
+        return (contributors.size() > limit ? contributors.subList(0, Math.max(limit, 0)) : contributors);
+    }
+}
@@ -35,6 +35,10 @@ public class ApplicationDiscoveryComponent implements ResourceDiscoveryComponent
      * The logger instance.
      */
     private static Log LOG = LogFactory.getLog(ApplicationDiscoveryComponent.class);
+    /**
+     * The resources discovered beneath each parent, reused while its generation is unchanged.
+     */
+    private final DiscoveryCache cache = new DiscoveryCache();
 
     /**
      * Discover existing resources.
@@ -45,13 +49,22 @@ public class ApplicationDiscoveryComponent implements ResourceDiscoveryComponent
      */
     @Override
     public Set<DiscoveredResourceDetails> discoverResources(final ResourceDiscoveryContext<SwitchYardResourceComponent> context) {
+        final SwitchYardResourceComponent parent = context.getParentResourceComponent();
+        return cache.discover(parent, parent.getApplicationsGeneration(), new DiscoveryCache.Discoverer() {
+            public Set<DiscoveredResourceDetails> discover() {
+                return findResources(context, parent);
+            }
+        });
+    }
 
+    /**
+     * Discover the resources beneath the parent, when they are not cached.
+     */
+    private Set<DiscoveredResourceDetails> findResources(final ResourceDiscoveryContext<SwitchYardResourceComponent> context, final SwitchYardResourceComponent parent) {
         final HashSet<DiscoveredResourceDetails> discoveredResources = new HashSet<DiscoveredResourceDetails>();
 
-        final SwitchYardResourceComponent parent = context.getParentResourceComponent();
-
         final Map<String, Application> applications = parent.getApplications();
-        
+
         if (applications != null) {
             for (Application application : applications.values()) {
                 final Configuration pluginConfig = context.getDefaultPluginConfiguration();
@@ -64,7 +77,7 @@ public class ApplicationDiscoveryComponent implements ResourceDiscoveryComponent
                         pluginConfig, null);
 
                 discoveredResources.add(resource);
-                
+
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("Discovered SwitchYard Application " + application);
                 }
@@ -13,16 +13,54 @@
  */
 package org.switchyard.rhq.plugin;
 
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_PREFIX_COMPONENT_SERVICE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_PREFIX_REFERENCE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_PREFIX_SERVICE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_CALL_GRAPH;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_PARAMETER_LIMIT;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_AVERAGE_TIME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_CONTRIBUTOR;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_CONTRIBUTORS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_CRITICAL_PATH;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_EDGE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_EDGES;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_FROM;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_HOP;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_NAME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_RANK;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_SELF_TIME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_SHARE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_TO;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_TOTAL_COUNT;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_TOTAL_TIME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_TYPE;
+
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.codehaus.jackson.JsonNode;
+import org.rhq.core.domain.configuration.Configuration;
+import org.rhq.core.domain.configuration.PropertyList;
+import org.rhq.core.domain.configuration.PropertyMap;
+import org.rhq.core.domain.configuration.PropertySimple;
 import org.rhq.core.domain.measurement.AvailabilityType;
+import org.rhq.core.domain.measurement.MeasurementDataNumeric;
+import org.rhq.core.domain.measurement.MeasurementReport;
+import org.rhq.core.domain.measurement.MeasurementScheduleRequest;
+import org.rhq.core.pluginapi.measurement.MeasurementFacet;
+import org.rhq.core.pluginapi.operation.OperationFacet;
+import org.rhq.core.pluginapi.operation.OperationResult;
 import org.rhq.modules.plugins.jbossas7.json.Operation;
+import org.switchyard.rhq.plugin.model.AggregateMetrics;
 import org.switchyard.rhq.plugin.model.Application;
 import org.switchyard.rhq.plugin.model.ComponentService;
 import org.switchyard.rhq.plugin.model.ComponentServiceMetrics;
+import org.switchyard.rhq.plugin.model.DerivedMetrics;
+import org.switchyard.rhq.plugin.model.Metrics;
 import org.switchyard.rhq.plugin.model.Reference;
 import org.switchyard.rhq.plugin.model.ReferenceMetrics;
 import org.switchyard.rhq.plugin.model.Service;
@@ -31,11 +69,15 @@ import org.switchyard.rhq.plugin.model.ServiceMetrics;
 /**
  * SwitchYard Application Resource Component
  */
-public class ApplicationResourceComponent extends BaseSwitchYardResourceComponent<SwitchYardResourceComponent> {
+public class ApplicationResourceComponent extends BaseSwitchYardResourceComponent<SwitchYardResourceComponent> implements MeasurementFacet, OperationFacet {
     /**
      * The logger instance.
      */
     private static Log LOG = LogFactory.getLog(ApplicationResourceComponent.class);
+    /**
+     * The default number of latency contributors reported by the call graph.
+     */
+    private static final int DEFAULT_CONTRIBUTORS = 5;
     
     protected Log getLog() {
         return LOG;
@@ -83,12 +125,20 @@ public class ApplicationResourceComponent extends BaseSwitchYardResourceComponen
         return getResourceContext().getParentResourceComponent().execute(operation, clazz);
     }
 
+    public JsonNode executeRaw(final Operation operation) {
+        return getResourceContext().getParentResourceComponent().executeRaw(operation);
+    }
+
     public Map<String, ServiceMetrics> getServiceMetrics() {
         final String applicationKey = getResourceContext().getResourceKey();
         final Map<String, Map<String, ServiceMetrics>> serviceMetricsMap = getResourceContext().getParentResourceComponent().getServiceMetrics();
         return serviceMetricsMap.get(applicationKey);
     }
 
+    public List<DerivedMetrics> getServiceMetricsHistory(final ServiceMetrics serviceMetrics) {
+        return getResourceContext().getParentResourceComponent().getServiceMetricsHistory(serviceMetrics);
+    }
+
     public Map<String, ReferenceMetrics> getReferenceMetrics() {
         final String applicationKey = getResourceContext().getResourceKey();
         final Map<String, Map<String, ReferenceMetrics>> referenceMetricsMap = getResourceContext().getParentResourceComponent().getReferenceMetrics();
@@ -105,6 +155,146 @@ public class ApplicationResourceComponent extends BaseSwitchYardResourceComponen
         getResourceContext().getParentResourceComponent().clearApplications();
     }
 
+    public long getGeneration() {
+        final String applicationKey = getResourceContext().getResourceKey();
+        return getResourceContext().getParentResourceComponent().getApplicationGeneration(applicationKey);
+    }
+
+    public long getOperationGeneration(final String type, final String name) {
+        final String applicationKey = getResourceContext().getResourceKey();
+        return getResourceContext().getParentResourceComponent().getOperationGeneration(type, applicationKey, name);
+    }
+
+    public Set<String> getOperationNames(final String type, final String name) {
+        final String applicationKey = getResourceContext().getResourceKey();
+        return getResourceContext().getParentResourceComponent().getOperationNames(type, applicationKey, name);
+    }
+
+    @Override
+    public void getValues(final MeasurementReport report, final Set<MeasurementScheduleRequest> requests) throws Exception {
+        final AggregateMetrics serviceMetrics = aggregate(getServiceMetrics());
+        final AggregateMetrics referenceMetrics = aggregate(getReferenceMetrics());
+        final AggregateMetrics componentServiceMetrics = aggregate(getComponentServiceMetrics());
+        final long timestamp = getOldestTimestamp(serviceMetrics, referenceMetrics, componentServiceMetrics);
+        for (MeasurementScheduleRequest request: requests) {
+            MeasurementDataNumeric measurementData = getMetricsAge(request, timestamp);
+            if (measurementData == null) {
+                measurementData = getAggregateMetric(request, METRIC_PREFIX_SERVICE, serviceMetrics);
+            }
+            if (measurementData == null) {
+                measurementData = getAggregateMetric(request, METRIC_PREFIX_REFERENCE, referenceMetrics);
+            }
+            if (measurementData == null) {
+                measurementData = getAggregateMetric(request, METRIC_PREFIX_COMPONENT_SERVICE, componentServiceMetrics);
+            }
+            if (measurementData != null) {
+                report.addData(measurementData);
+            } else if (LOG.isDebugEnabled()) {
+                LOG.debug("Unable to collect Application measurement " + request.getName());
+            }
+        }
+    }
+
+    private static AggregateMetrics aggregate(final Map<String, ? extends Metrics> metrics) {
+        final AggregateMetrics aggregateMetrics = new AggregateMetrics();
+        if (metrics != null) {
+            aggregateMetrics.addAll(metrics.values());
+        }
+        return aggregateMetrics;
+    }
+
+    private static long getOldestTimestamp(final AggregateMetrics... aggregateMetrics) {
+        long timestamp = 0;
+        for (AggregateMetrics metrics: aggregateMetrics) {
+            if ((metrics.getTimestamp() > 0) && ((timestamp == 0) || (metrics.getTimestamp() < timestamp))) {
+                timestamp = metrics.getTimestamp();
+            }
+        }
+        return timestamp;
+    }
+
+    @Override
+    public OperationResult invokeOperation(final String name, final Configuration parameters) throws InterruptedException, Exception {
+        if (OPERATION_CALL_GRAPH.equals(name)) {
+            final PropertySimple limit = (PropertySimple) parameters.get(OPERATION_PARAMETER_LIMIT);
+            return getCallGraph((limit != null) && (limit.getIntegerValue() != null) ? limit.getIntegerValue().intValue() : DEFAULT_CONTRIBUTORS);
+        } else if (LOG.isDebugEnabled()) {
+            LOG.warn("Unknown Application operation " + name);
+        }
+        return null;
+    }
+
+    /**
+     * Build the call graph of the application and report its edges, critical path and largest latency contributors.
+     * 
+     * @param limit The number of latency contributors to report.
+     * @return The call graph analysis, or null if the application is not available.
+     */
+    private OperationResult getCallGraph(final int limit) {
+        final Application application = getApplication();
+        if (application == null) {
+            return null;
+        }
+        final ApplicationCallGraph callGraph = new ApplicationCallGraph(application, getServiceMetrics(),
+                getReferenceMetrics(), getComponentServiceMetrics());
+
+        final PropertyList edges = new PropertyList(OPERATION_RESULT_EDGES);
+        for (ApplicationCallGraph.Node[] edge: callGraph.getEdges()) {
+            final ApplicationCallGraph.Node target = edge[1];
+            edges.add(new PropertyMap(OPERATION_RESULT_EDGE,
+                    new PropertySimple(OPERATION_RESULT_FROM, edge[0].getName()),
+                    new PropertySimple(OPERATION_RESULT_TO, target.getName()),
+                    new PropertySimple(OPERATION_RESULT_TYPE, target.getType()),
+                    new PropertySimple(OPERATION_RESULT_TOTAL_COUNT, getTotalCount(target)),
+                    new PropertySimple(OPERATION_RESULT_AVERAGE_TIME, getAverageTime(target)),
+                    new PropertySimple(OPERATION_RESULT_TOTAL_TIME, Long.valueOf(target.getTotalTime()))));
+        }
+
+        final PropertyList criticalPath = new PropertyList(OPERATION_RESULT_CRITICAL_PATH);
+        int rank = 0;
+        for (ApplicationCallGraph.Node node: callGraph.getCriticalPath()) {
+            criticalPath.add(new PropertyMap(OPERATION_RESULT_HOP,
+                    new PropertySimple(OPERATION_RESULT_RANK, Integer.valueOf(++rank)),
+                    new PropertySimple(OPERATION_RESULT_TYPE, node.getType()),
+                    new PropertySimple(OPERATION_RESULT_NAME, node.getName()),
+                    new PropertySimple(OPERATION_RESULT_TOTAL_COUNT, getTotalCount(node)),
+                    new PropertySimple(OPERATION_RESULT_AVERAGE_TIME, getAverageTime(node)),
+                    new PropertySimple(OPERATION_RESULT_SELF_TIME, Long.valueOf(node.getSelfTime()))));
+        }
+
+        long entryTime = 0;
+        for (ApplicationCallGraph.Node node: callGraph.getEntryNodes()) {
+            entryTime += node.getTotalTime();
+        }
+        final PropertyList contributors = new PropertyList(OPERATION_RESULT_CONTRIBUTORS);
+        rank = 0;
+        for (ApplicationCallGraph.Node node: callGraph.getLargestContributors(limit)) {
+            contributors.add(new PropertyMap(OPERATION_RESULT_CONTRIBUTOR,
+                    new PropertySimple(OPERATION_RESULT_RANK, Integer.valueOf(++rank)),
+                    new PropertySimple(OPERATION_RESULT_TYPE, node.getType()),
+                    new PropertySimple(OPERATION_RESULT_NAME, node.getName()),
+                    new PropertySimple(OPERATION_RESULT_SELF_TIME, Long.valueOf(node.getSelfTime())),
+                    new PropertySimple(OPERATION_RESULT_SHARE,
+                            Double.valueOf(entryTime > 0 ? Math.min((double) node.getSelfTime() / entryTime, 1.0) : 0.0))));
+        }
+
+        final OperationResult result = new OperationResult();
+        result.getComplexResults().put(edges);
+        result.getComplexResults().put(criticalPath);
+        result.getComplexResults().put(contributors);
+        return result;
+    }
+
+    private static Integer getTotalCount(final ApplicationCallGraph.Node node) {
+        final Metrics metrics = node.getMetrics();
+        return Integer.valueOf(metrics != null ? metrics.getTotalCount() : 0);
+    }
+
+    private static Double getAverageTime(final ApplicationCallGraph.Node node) {
+        final Metrics metrics = node.getMetrics();
+        return Double.valueOf(metrics != null ? metrics.getAverageTime() : 0.0);
+    }
+
     public void clearServiceMetrics() {
         getResourceContext().getParentResourceComponent().clearServiceMetrics();
     }
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.namespace.QName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.switchyard.rhq.plugin.model.Application;
+import org.switchyard.rhq.plugin.model.ComponentReference;
+import org.switchyard.rhq.plugin.model.ComponentService;
+import org.switchyard.rhq.plugin.model.Gateway;
+import org.switchyard.rhq.plugin.model.Reference;
+import org.switchyard.rhq.plugin.model.Service;
+import org.switchyard.rhq.plugin.model.Throttling;
+
+/**
+ * Persists the last application snapshot in a compressed binary file, so a restarted agent can
+ * answer discovery and availability from it while the applications are reloaded.
+ */
+public class ApplicationSnapshotStore {
+    /**
+     * The logger instance.
+     */
+    private static Log LOG = LogFactory.getLog(ApplicationSnapshotStore.class);
+
+    /**
+     * The name of the snapshot file.
+     */
+    private static final String FILE_NAME = "applications.dat";
+    /**
+     * The file magic, "SYAS".
+     */
+    private static final int MAGIC = 0x53594153;
+    /**
+     * The file format version.
+     */
+    private static final int VERSION = 1;
+    /**
+     * The string encoding.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private File directory;
+
+    /**
+     * Use the directory for the snapshot.  Requests are silently ignored without a directory.
+     * 
+     * @param directory The data directory of the resource.
+     */
+    public synchronized void open(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Load the persisted snapshot.
+     * 
+     * @return The applications, or null if there is no usable snapshot.
+     */
+    public synchronized Application[] load() {
+        if (directory == null) {
+            return null;
+        }
+        final File file = new File(directory, FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+            try {
+                if ((input.readInt() != MAGIC) || (input.readInt() != VERSION)) {
+                    LOG.warn("Ignoring unrecognised SwitchYard application snapshot in " + directory);
+                    return null;
+                }
+                final Application[] applications = new Application[input.readInt()];
+                for (int count = 0; count < applications.length; count++) {
+                    applications[count] = readApplication(input);
+                }
+                return applications;
+            } finally {
+                input.close();
+            }
+        } catch (final IOException ioe) {
+            LOG.warn("Unable to read SwitchYard application snapshot in " + directory, ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Replace the persisted snapshot, writing a temporary file which is renamed over the snapshot.
+     * 
+     * @param applications The applications.
+     */
+    public synchronized void save(final Collection<Application> applications) {
+        if (directory == null) {
+            return;
+        }
+        directory.mkdirs();
+        final File file = new File(directory, FILE_NAME);
+        final File tempFile = new File(directory, FILE_NAME + ".tmp");
+        try {
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile))));
+            try {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(applications.size());
+                for (Application application: applications) {
+                    writeApplication(output, application);
+                }
+            } finally {
+                output.close();
+            }
+            if (!tempFile.renameTo(file)) {
+                file.delete();
+                if (!tempFile.renameTo(file)) {
+                    LOG.warn("Unable to replace SwitchYard application snapshot in " + directory);
+                }
+            }
+        } catch (final IOException ioe) {
+            LOG.warn("Unable to write SwitchYard application snapshot in " + directory, ioe);
+            tempFile.delete();
+        }
+    }
+
+    private static void writeApplication(final DataOutputStream output, final Application application) throws IOException {
+        writeQName(output, application.getName());
+        output.writeInt(application.getServices().size());
+        for (Service service: application.getServices().values()) {
+            writeQName(output, service.getName());
+            writeString(output, service.getInterfaceName());
+            writeQName(output, service.getPromotedService());
+            writeGateways(output, service.getGateways().values());
+            final Throttling throttling = service.getThrottling();
+            output.writeBoolean(throttling != null);
+            if (throttling != null) {
+                writeString(output, (throttling.isEnabled() != null ? throttling.isEnabled().toString() : null));
+                writeString(output, (throttling.getMaxRequests() != null ? throttling.getMaxRequests().toString() : null));
+                writeString(output, (throttling.getTimePeriod() != null ? throttling.getTimePeriod().toString() : null));
+            }
+        }
+        output.writeInt(application.getReferences().size());
+        for (Reference reference: application.getReferences().values()) {
+            writeQName(output, reference.getName());
+            writeString(output, reference.getInterfaceName());
+            writeString(output, reference.getPromotedReference());
+            writeGateways(output, reference.getGateways().values());
+        }
+        output.writeInt(application.getComponentServices().size());
+        for (ComponentService componentService: application.getComponentServices().values()) {
+            writeQName(output, componentService.getName());
+            writeString(output, componentService.getInterfaceName());
+            writeString(output, componentService.getImplementationType());
+            writeString(output, componentService.getImplementationConfiguration());
+            output.writeInt(componentService.getReferences().size());
+            for (ComponentReference componentReference: componentService.getReferences().values()) {
+                writeQName(output, componentReference.getName());
+                writeString(output, componentReference.getInterfaceName());
+            }
+        }
+    }
+
+    private static Application readApplication(final DataInputStream input) throws IOException {
+        final QName name = readQName(input);
+        final Service[] services = new Service[input.readInt()];
+        for (int count = 0; count < services.length; count++) {
+            final QName serviceName = readQName(input);
+            final String interfaceName = readString(input);
+            final QName promotedService = readQName(input);
+            final Gateway[] gateways = readGateways(input);
+            Throttling throttling = null;
+            if (input.readBoolean()) {
+                final String enabled = readString(input);
+                final String maxRequests = readString(input);
+                final String timePeriod = readString(input);
+                throttling = new Throttling((enabled != null ? Boolean.valueOf(enabled) : null),
+                        (maxRequests != null ? Integer.valueOf(maxRequests) : null),
+                        (timePeriod != null ? Long.valueOf(timePeriod) : null));
+            }
+            services[count] = new Service(serviceName, interfaceName, promotedService, gateways, throttling);
+        }
+        final Reference[] references = new Reference[input.readInt()];
+        for (int count = 0; count < references.length; count++) {
+            references[count] = new Reference(readQName(input), readString(input), readString(input), readGateways(input));
+        }
+        final ComponentService[] componentServices = new ComponentService[input.readInt()];
+        for (int count = 0; count < componentServices.length; count++) {
+            final QName componentServiceName = readQName(input);
+            final String interfaceName = readString(input);
+            final String implementationType = readString(input);
+            final String implementationConfiguration = readString(input);
+            final ComponentReference[] componentReferences = new ComponentReference[input.readInt()];
+            for (int index = 0; index < componentReferences.length; index++) {
+                componentReferences[index] = new ComponentReference(readQName(input), readString(input));
+            }
+            componentServices[count] = new ComponentService(componentServiceName, interfaceName, implementationType,
+                    implementationConfiguration, componentReferences);
+        }
+        return new Application(name, services, references, componentServices);
+    }
+
+    private static void writeGateways(final DataOutputStream output, final Collection<Gateway> gateways) throws IOException {
+        output.writeInt(gateways.size());
+        for (Gateway gateway: gateways) {
+            writeQName(output, gateway.getName());
+            writeString(output, gateway.getType());
+            writeString(output, gateway.getConfiguration());
+            writeString(output, gateway.getState());
+        }
+    }
+
+    private static Gateway[] readGateways(final DataInputStream input) throws IOException {
+        final Gateway[] gateways = new Gateway[input.readInt()];
+        for (int count = 0; count < gateways.length; count++) {
+            gateways[count] = new Gateway(readQName(input), readString(input), readString(input), readString(input));
+        }
+        return gateways;
+    }
+
+    private static void writeQName(final DataOutputStream output, final QName name) throws IOException {
+        writeString(output, (name != null ? name.toString() : null));
+    }
+
+    private static QName readQName(final DataInputStream input) throws IOException {
+        final String name = readString(input);
+        return (name != null ? QName.valueOf(name) : null);
+    }
+
+    /**
+     * Write a string as its length and UTF-8 bytes, a length of -1 marking null.  Unlike
+     * writeUTF, this is not limited to 64k, which gateway configurations can exceed.
+     */
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(UTF8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+}
@@ -14,12 +14,24 @@
 package org.switchyard.rhq.plugin;
 
 import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_AVERAGE_PROCESSING_TIME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_ESTIMATED_CONCURRENCY;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_FAULT_COUNT;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_FAULT_RATE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_INTERVAL_AVERAGE_PROCESSING_TIME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_INVOCATION_RATE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_LATENCY_ANOMALY_SCORE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_LIFETIME_FAULT_COUNT;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_LIFETIME_SUCCESS_COUNT;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_LIFETIME_TOTAL_COUNT;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_LIFETIME_TOTAL_PROCESSING_TIME;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_MAX_PROCESSING_TIME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_METRICS_AGE;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_MIN_PROCESSING_TIME;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_SUCCESS_COUNT;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_TOTAL_COUNT;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_TOTAL_PROCESSING_TIME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_WINDOW_MAX_PROCESSING_TIME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_WINDOW_MIN_PROCESSING_TIME;
 
 import org.apache.commons.logging.Log;
 import org.rhq.core.domain.measurement.MeasurementDataNumeric;
@@ -27,6 +39,8 @@ import org.rhq.core.domain.measurement.MeasurementScheduleRequest;
 import org.rhq.core.pluginapi.inventory.InvalidPluginConfigurationException;
 import org.rhq.core.pluginapi.inventory.ResourceComponent;
 import org.rhq.core.pluginapi.inventory.ResourceContext;
+import org.switchyard.rhq.plugin.model.AggregateMetrics;
+import org.switchyard.rhq.plugin.model.DerivedMetrics;
 import org.switchyard.rhq.plugin.model.Metrics;
 
 /**
@@ -54,9 +68,48 @@ abstract class BaseSwitchYardResourceComponent<T extends ResourceComponent<?>> i
     }
 
     protected abstract Log getLog();
-    
+
+    /**
+     * The age, in milliseconds, beyond which cached metrics are no longer reported, or 0 if unbounded.
+     */
+    protected long getMaxMetricsAge() {
+        final Object parent = getResourceContext().getParentResourceComponent();
+        return (parent instanceof BaseSwitchYardResourceComponent ? ((BaseSwitchYardResourceComponent<?>) parent).getMaxMetricsAge() : 0);
+    }
+
+    /**
+     * Whether metrics retrieved at the timestamp are recent enough to be reported.
+     */
+    protected boolean isCurrent(final long timestamp) {
+        final long maxMetricsAge = getMaxMetricsAge();
+        return (maxMetricsAge <= 0) || (System.currentTimeMillis() - timestamp <= maxMetricsAge);
+    }
+
+    /**
+     * Report the age of the metrics retrieved at the timestamp, if the request is for the metrics age.
+     */
+    protected MeasurementDataNumeric getMetricsAge(final MeasurementScheduleRequest request, final long timestamp) {
+        if (METRIC_METRICS_AGE.equals(request.getName()) && (timestamp > 0)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(System.currentTimeMillis() - timestamp));
+        }
+        return null;
+    }
+
     protected MeasurementDataNumeric getCommonMetric(final MeasurementScheduleRequest request, final Metrics metrics) {
         final String name = request.getName();
+        if (METRIC_METRICS_AGE.equals(name)) {
+            return getMetricsAge(request, metrics.getTimestamp());
+        } else if (!isCurrent(metrics.getTimestamp())) {
+            return null;
+        }
+        final DerivedMetrics derivedMetrics = metrics.getDerivedMetrics();
+        if ((derivedMetrics != null) && derivedMetrics.isWindowed()) {
+            // The server counters are reset after every read, keep the raw metrics cumulative
+            final MeasurementDataNumeric windowedData = getWindowedCommonMetric(request, derivedMetrics);
+            if (windowedData != null) {
+                return windowedData;
+            }
+        }
         if (METRIC_SUCCESS_COUNT.equals(name)) {
             return new MeasurementDataNumeric(request, Double.valueOf(metrics.getSuccessCount()));
         } else if (METRIC_FAULT_COUNT.equals(name)) {
@@ -71,6 +124,94 @@ abstract class BaseSwitchYardResourceComponent<T extends ResourceComponent<?>> i
             return new MeasurementDataNumeric(request, Double.valueOf(metrics.getMinTime()));
         } else if (METRIC_MAX_PROCESSING_TIME.equals(name)) {
             return new MeasurementDataNumeric(request, Double.valueOf(metrics.getMaxTime()));
+        } else {
+            return getDerivedMetric(request, metrics.getDerivedMetrics());
+        }
+    }
+
+    private MeasurementDataNumeric getWindowedCommonMetric(final MeasurementScheduleRequest request, final DerivedMetrics derivedMetrics) {
+        final String name = request.getName();
+        if (METRIC_SUCCESS_COUNT.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getLifetimeSuccessCount()));
+        } else if (METRIC_FAULT_COUNT.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getLifetimeFaultCount()));
+        } else if (METRIC_TOTAL_COUNT.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getLifetimeCount()));
+        } else if (METRIC_TOTAL_PROCESSING_TIME.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getLifetimeTotalTime()));
+        } else if (METRIC_AVERAGE_PROCESSING_TIME.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getLifetimeAverageTime()));
+        } else if (METRIC_MIN_PROCESSING_TIME.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getLifetimeMinTime()));
+        } else if (METRIC_MAX_PROCESSING_TIME.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getLifetimeMaxTime()));
+        } else {
+            return null;
+        }
+    }
+
+    private MeasurementDataNumeric getDerivedMetric(final MeasurementScheduleRequest request, final DerivedMetrics derivedMetrics) {
+        if (derivedMetrics == null) {
+            return null;
+        }
+        final String name = request.getName();
+        if (METRIC_LIFETIME_SUCCESS_COUNT.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getLifetimeSuccessCount()));
+        } else if (METRIC_LIFETIME_FAULT_COUNT.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getLifetimeFaultCount()));
+        } else if (METRIC_LIFETIME_TOTAL_COUNT.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getLifetimeCount()));
+        } else if (METRIC_LIFETIME_TOTAL_PROCESSING_TIME.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getLifetimeTotalTime()));
+        } else if (!derivedMetrics.hasInterval()) {
+            return null;
+        } else if (METRIC_INVOCATION_RATE.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getInvocationRate()));
+        } else if (METRIC_FAULT_RATE.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getFaultRate()));
+        } else if (METRIC_ESTIMATED_CONCURRENCY.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getEstimatedConcurrency()));
+        } else if (derivedMetrics.getCount() == 0) {
+            return null;
+        } else if (METRIC_INTERVAL_AVERAGE_PROCESSING_TIME.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getAverageTime()));
+        } else if (METRIC_LATENCY_ANOMALY_SCORE.equals(name) && (derivedMetrics.getLatencyAnomalyScore() != null)) {
+            return new MeasurementDataNumeric(request, derivedMetrics.getLatencyAnomalyScore());
+        } else if (METRIC_WINDOW_MIN_PROCESSING_TIME.equals(name) && derivedMetrics.isWindowed()) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getWindowMinTime()));
+        } else if (METRIC_WINDOW_MAX_PROCESSING_TIME.equals(name) && derivedMetrics.isWindowed()) {
+            return new MeasurementDataNumeric(request, Double.valueOf(derivedMetrics.getWindowMaxTime()));
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Report a common metric from the aggregated metrics, if the request name starts with the prefix.
+     */
+    protected MeasurementDataNumeric getAggregateMetric(final MeasurementScheduleRequest request, final String prefix,
+            final AggregateMetrics metrics) {
+        final String requestName = request.getName();
+        if (!requestName.startsWith(prefix) || !isCurrent(metrics.getTimestamp())) {
+            return null;
+        }
+        final String name = requestName.substring(prefix.length());
+        if (METRIC_SUCCESS_COUNT.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(metrics.getSuccessCount()));
+        } else if (METRIC_FAULT_COUNT.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(metrics.getFaultCount()));
+        } else if (METRIC_TOTAL_COUNT.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(metrics.getTotalCount()));
+        } else if (METRIC_TOTAL_PROCESSING_TIME.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(metrics.getTotalTime()));
+        } else if (METRIC_AVERAGE_PROCESSING_TIME.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(metrics.getAverageTime()));
+        } else if (METRIC_MAX_PROCESSING_TIME.equals(name)) {
+            return new MeasurementDataNumeric(request, Double.valueOf(metrics.getMaxTime()));
+        } else if (METRIC_INVOCATION_RATE.equals(name) && metrics.isRated()) {
+            return new MeasurementDataNumeric(request, Double.valueOf(metrics.getInvocationRate()));
+        } else if (METRIC_FAULT_RATE.equals(name) && metrics.isRated()) {
+            return new MeasurementDataNumeric(request, Double.valueOf(metrics.getFaultRate()));
         } else {
             return null;
         }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.rhq.core.domain.configuration.Configuration;
+import org.rhq.core.pluginapi.inventory.DiscoveredResourceDetails;
+import org.rhq.core.pluginapi.inventory.ResourceDiscoveryComponent;
+import org.rhq.core.pluginapi.inventory.ResourceDiscoveryContext;
+
+/**
+ * SwitchYard Binding Type Discovery Component
+ */
+public class BindingTypeDiscoveryComponent implements ResourceDiscoveryComponent<SwitchYardResourceComponent> {
+    /**
+     * The logger instance.
+     */
+    private static Log LOG = LogFactory.getLog(BindingTypeDiscoveryComponent.class);
+    /**
+     * The resources discovered beneath each parent, reused while its generation is unchanged.
+     */
+    private final DiscoveryCache cache = new DiscoveryCache();
+
+    /**
+     * Discover existing resources.
+     * 
+     * @param context
+     *            The context for the current discovery component.
+     * @return The discovered resources.
+     */
+    @Override
+    public Set<DiscoveredResourceDetails> discoverResources(final ResourceDiscoveryContext<SwitchYardResourceComponent> context) {
+        final SwitchYardResourceComponent parent = context.getParentResourceComponent();
+        return cache.discover(parent, parent.getTopologyGeneration(), new DiscoveryCache.Discoverer() {
+            public Set<DiscoveredResourceDetails> discover() {
+                return findResources(context, parent);
+            }
+        });
+    }
+
+    /**
+     * Discover the resources beneath the parent, when they are not cached.
+     */
+    private Set<DiscoveredResourceDetails> findResources(final ResourceDiscoveryContext<SwitchYardResourceComponent> context, final SwitchYardResourceComponent parent) {
+        final HashSet<DiscoveredResourceDetails> discoveredResources = new HashSet<DiscoveredResourceDetails>();
+
+        for (String type : parent.getBindingTypes()) {
+            final Configuration pluginConfig = context.getDefaultPluginConfiguration();
+
+            final DiscoveredResourceDetails resource = new DiscoveredResourceDetails(
+                    context.getResourceType(), type, type,
+                    null, "SwitchYard " + type + " bindings",
+                    pluginConfig, null);
+
+            discoveredResources.add(resource);
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Discovered SwitchYard Binding Type " + type);
+            }
+        }
+
+        return discoveredResources;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.rhq.core.domain.measurement.AvailabilityType;
+import org.rhq.core.domain.measurement.MeasurementDataNumeric;
+import org.rhq.core.domain.measurement.MeasurementReport;
+import org.rhq.core.domain.measurement.MeasurementScheduleRequest;
+import org.rhq.core.pluginapi.measurement.MeasurementFacet;
+import org.switchyard.rhq.plugin.model.AggregateMetrics;
+
+/**
+ * SwitchYard Binding Type Resource Component, aggregating the service and reference bindings of a single type.
+ */
+public class BindingTypeResourceComponent extends BaseSwitchYardResourceComponent<SwitchYardResourceComponent> implements MeasurementFacet {
+    /**
+     * The logger instance.
+     */
+    private static Log LOG = LogFactory.getLog(BindingTypeResourceComponent.class);
+
+    protected Log getLog() {
+        return LOG;
+    }
+
+    @Override
+    public AvailabilityType getAvailability() {
+        final String type = getResourceContext().getResourceKey();
+        return (getResourceContext().getParentResourceComponent().getBindingTypes().contains(type) ? AvailabilityType.UP : AvailabilityType.DOWN);
+    }
+
+    public AggregateMetrics getBindingTypeMetrics() {
+        final String type = getResourceContext().getResourceKey();
+        return getResourceContext().getParentResourceComponent().getBindingTypeMetrics().get(type);
+    }
+
+    @Override
+    public void getValues(final MeasurementReport report, final Set<MeasurementScheduleRequest> requests) throws Exception {
+        final AggregateMetrics metrics = getBindingTypeMetrics();
+        if (metrics != null) {
+            for (MeasurementScheduleRequest request: requests) {
+                MeasurementDataNumeric measurementData = getMetricsAge(request, metrics.getTimestamp());
+                if (measurementData == null) {
+                    measurementData = getAggregateMetric(request, "", metrics);
+                }
+                if (measurementData != null) {
+                    report.addData(measurementData);
+                } else if (LOG.isDebugEnabled()) {
+                    LOG.debug("Unable to collect Binding Type measurement " + request.getName());
+                }
+            }
+        }
+    }
+}
@@ -35,6 +35,10 @@ public class ComponentReferenceDiscoveryComponent implements ResourceDiscoveryCo
      * The logger instance.
      */
     private static Log LOG = LogFactory.getLog(ComponentReferenceDiscoveryComponent.class);
+    /**
+     * The resources discovered beneath each parent, reused while its generation is unchanged.
+     */
+    private final DiscoveryCache cache = new DiscoveryCache();
 
     /**
      * Discover existing resources.
@@ -45,11 +49,20 @@ public class ComponentReferenceDiscoveryComponent implements ResourceDiscoveryCo
      */
     @Override
     public Set<DiscoveredResourceDetails> discoverResources(final ResourceDiscoveryContext<ComponentServiceResourceComponent> context) {
+        final ComponentServiceResourceComponent parent = context.getParentResourceComponent();
+        return cache.discover(parent, parent.getGeneration(), new DiscoveryCache.Discoverer() {
+            public Set<DiscoveredResourceDetails> discover() {
+                return findResources(context, parent);
+            }
+        });
+    }
 
+    /**
+     * Discover the resources beneath the parent, when they are not cached.
+     */
+    private Set<DiscoveredResourceDetails> findResources(final ResourceDiscoveryContext<ComponentServiceResourceComponent> context, final ComponentServiceResourceComponent parent) {
         final HashSet<DiscoveredResourceDetails> discoveredResources = new HashSet<DiscoveredResourceDetails>();
-        
-        final ComponentServiceResourceComponent parent = context.getParentResourceComponent();
-        
+
         final Map<String, ComponentReference> references = parent.getReferences();
 
         if (references != null) {
@@ -64,7 +77,7 @@ public class ComponentReferenceDiscoveryComponent implements ResourceDiscoveryCo
                         pluginConfig, null);
 
                 discoveredResources.add(resource);
-                
+
                 LOG.debug("Discovered SwitchYard Component Reference " + reference);
             }
         }
@@ -14,7 +14,6 @@
 package org.switchyard.rhq.plugin;
 
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 import javax.xml.namespace.QName;
@@ -26,7 +25,6 @@ import org.rhq.core.pluginapi.inventory.DiscoveredResourceDetails;
 import org.rhq.core.pluginapi.inventory.ResourceDiscoveryComponent;
 import org.rhq.core.pluginapi.inventory.ResourceDiscoveryContext;
 import org.switchyard.rhq.plugin.model.ComponentService;
-import org.switchyard.rhq.plugin.model.OperationMetrics;
 
 /**
  * SwitchYard Component Service Operation Discovery Component
@@ -36,6 +34,10 @@ public class ComponentServiceOperationDiscoveryComponent implements ResourceDisc
      * The logger instance.
      */
     private static Log LOG = LogFactory.getLog(ComponentServiceOperationDiscoveryComponent.class);
+    /**
+     * The resources discovered beneath each parent, reused while its generation is unchanged.
+     */
+    private final DiscoveryCache cache = new DiscoveryCache();
 
     /**
      * Discover existing resources.
@@ -46,25 +48,35 @@ public class ComponentServiceOperationDiscoveryComponent implements ResourceDisc
      */
     @Override
     public Set<DiscoveredResourceDetails> discoverResources(final ResourceDiscoveryContext<ComponentServiceResourceComponent> context) {
+        final ComponentServiceResourceComponent parent = context.getParentResourceComponent();
+        return cache.discover(parent, parent.getOperationGeneration(), new DiscoveryCache.Discoverer() {
+            public Set<DiscoveredResourceDetails> discover() {
+                return findResources(context, parent);
+            }
+        });
+    }
 
+    /**
+     * Discover the resources beneath the parent, when they are not cached.
+     */
+    private Set<DiscoveredResourceDetails> findResources(final ResourceDiscoveryContext<ComponentServiceResourceComponent> context, final ComponentServiceResourceComponent parent) {
         final HashSet<DiscoveredResourceDetails> discoveredResources = new HashSet<DiscoveredResourceDetails>();
-        
-        final ComponentServiceResourceComponent parent = context.getParentResourceComponent();
+
         final ComponentService service = parent.getComponentService() ;
         if (service != null)
         {
-            Map<String, OperationMetrics> metrics = parent.getOperationMetrics();
+            final Set<String> operationNames = parent.getOperationNames();
             final QName serviceName = service.getName();
-            
-            for (String operationName : metrics.keySet()) {
+
+            for (String operationName : operationNames) {
                 final Configuration pluginConfig = context.getDefaultPluginConfiguration();
-    
+
                 final DiscoveredResourceDetails resource = new DiscoveredResourceDetails(
                         context.getResourceType(), operationName, operationName,
                         serviceName.getNamespaceURI(), null, pluginConfig, null);
-    
+
                 discoveredResources.add(resource);
-                
+
                 LOG.debug("Discovered SwitchYard Component Service Operation " + operationName);
             }
         }
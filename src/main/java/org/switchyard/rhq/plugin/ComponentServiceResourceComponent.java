@@ -13,6 +13,8 @@
  */
 package org.switchyard.rhq.plugin;
 
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_DOWNSTREAM_TIME_SHARE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_SELF_PROCESSING_TIME;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESET;
 
 import java.util.Collections;
@@ -85,6 +87,20 @@ public class ComponentServiceResourceComponent extends BaseSwitchYardResourceCom
          return (componentServiceMetrics != null) ? componentServiceMetrics.get(componentServiceKey) : null;
     }
 
+    public long getGeneration() {
+        return getResourceContext().getParentResourceComponent().getGeneration();
+    }
+
+    public long getOperationGeneration() {
+        final String componentServiceKey = getResourceContext().getResourceKey();
+        return getResourceContext().getParentResourceComponent().getOperationGeneration(TopologyIndex.TYPE_COMPONENT_SERVICE, componentServiceKey);
+    }
+
+    public Set<String> getOperationNames() {
+        final String componentServiceKey = getResourceContext().getResourceKey();
+        return getResourceContext().getParentResourceComponent().getOperationNames(TopologyIndex.TYPE_COMPONENT_SERVICE, componentServiceKey);
+    }
+
     public Map<String, OperationMetrics> getOperationMetrics() {
         final ComponentServiceMetrics componentServiceMetrics = getComponentServiceMetrics();
         if (componentServiceMetrics != null) {
@@ -115,8 +131,17 @@ public class ComponentServiceResourceComponent extends BaseSwitchYardResourceCom
                 final MeasurementDataNumeric measurementData = getCommonMetric(request, metrics);
                 if (measurementData != null) {
                     report.addData(measurementData);
-                } else if (LOG.isDebugEnabled()) {
-                    LOG.debug("Unable to collect Component Service measurement " + request.getName());
+                } else {
+                    final String name = request.getName();
+                    final boolean current = isCurrent(metrics.getTimestamp());
+                    if (METRIC_SELF_PROCESSING_TIME.equals(name) && current && (metrics.getTotalCount() > 0)) {
+                        report.addData(new MeasurementDataNumeric(request, Double.valueOf((double)metrics.getSelfTotalTime() / metrics.getTotalCount())));
+                    } else if (METRIC_DOWNSTREAM_TIME_SHARE.equals(name) && current && (metrics.getTotalTime() > 0)) {
+                        final long referenceTotalTime = Math.min(metrics.getReferenceTotalTime(), metrics.getTotalTime());
+                        report.addData(new MeasurementDataNumeric(request, Double.valueOf((double)referenceTotalTime / metrics.getTotalTime())));
+                    } else if (LOG.isDebugEnabled()) {
+                        LOG.debug("Unable to collect Component Service measurement " + request.getName());
+                    }
                 }
             }
         }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.rhq.core.domain.configuration.Configuration;
+import org.rhq.core.pluginapi.inventory.DiscoveredResourceDetails;
+
+/**
+ * The resources last discovered beneath each parent component, reused while the generation
+ * of the parent's subtree is unchanged.  The details, including their plugin configuration,
+ * are copied in and out so the inventory may modify the details it is given.
+ */
+class DiscoveryCache {
+    /**
+     * Discovers the resources beneath a parent when the cached resources are out of date.
+     */
+    interface Discoverer {
+        Set<DiscoveredResourceDetails> discover();
+    }
+
+    private static class Entry {
+        private final long generation;
+        private final Set<DiscoveredResourceDetails> details;
+
+        Entry(final long generation, final Set<DiscoveredResourceDetails> details) {
+            this.generation = generation;
+            this.details = details;
+        }
+    }
+
+    /**
+     * The cached resources, keyed by parent component so entries are dropped along with the component.
+     */
+    private final Map<Object, Entry> entries = new WeakHashMap<Object, Entry>();
+
+    /**
+     * The resources discovered beneath the parent at the generation.
+     * 
+     * @return A copy of the cached resources, or null if they were discovered at another generation.
+     */
+    synchronized Set<DiscoveredResourceDetails> get(final Object parent, final long generation) {
+        final Entry entry = entries.get(parent);
+        if ((entry == null) || (entry.generation != generation) || (generation == TopologyChangeLog.UNKNOWN_GENERATION)) {
+            return null;
+        }
+        return copy(entry.details);
+    }
+
+    /**
+     * The resources beneath the parent, discovered again only if the generation has changed.
+     * 
+     * @param parent The parent component.
+     * @param generation The generation of the parent's subtree.
+     * @param discoverer Discovers the resources if they are not cached.
+     * @return The discovered resources.
+     */
+    Set<DiscoveredResourceDetails> discover(final Object parent, final long generation, final Discoverer discoverer) {
+        final Set<DiscoveredResourceDetails> cachedResources = get(parent, generation);
+        if (cachedResources != null) {
+            return cachedResources;
+        }
+        final Set<DiscoveredResourceDetails> discoveredResources = discoverer.discover();
+        put(parent, generation, discoveredResources);
+        return discoveredResources;
+    }
+
+    synchronized void put(final Object parent, final long generation, final Set<DiscoveredResourceDetails> details) {
+        entries.put(parent, new Entry(generation, copy(details)));
+    }
+
+    private static Set<DiscoveredResourceDetails> copy(final Set<DiscoveredResourceDetails> details) {
+        final Set<DiscoveredResourceDetails> copies = new HashSet<DiscoveredResourceDetails>();
+        for (DiscoveredResourceDetails resource: details) {
+            final Configuration pluginConfiguration = resource.getPluginConfiguration();
+            copies.add(new DiscoveredResourceDetails(resource.getResourceType(), resource.getResourceKey(),
+                    resource.getResourceName(), resource.getResourceVersion(), resource.getResourceDescription(),
+                    (pluginConfiguration != null ? pluginConfiguration.deepCopy(false) : null), resource.getProcessInfo()));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.switchyard.rhq.plugin.model.DerivedMetrics;
+import org.switchyard.rhq.plugin.model.Metrics;
+
+/**
+ * The baseline and lifetime counters of a single entity.
+ */
+class EntityCounters {
+    /**
+     * The counters reported by the server are 32-bit values which wrap at high throughput,
+     * so deltas are computed modulo 2^32 and accumulated into 64-bit lifetime counters.
+     */
+    private static final long COUNTER_MASK = 0xFFFFFFFFL;
+    /**
+     * The number of intervals retained in the history.
+     */
+    static final int HISTORY_SIZE = 120;
+    /**
+     * The weight given to the latest interval by the moving average and variance of the latency.
+     */
+    static final double LATENCY_WEIGHT = 0.2;
+    /**
+     * The number of intervals averaged before an anomaly score is reported.
+     */
+    static final int LATENCY_WARMUP = 5;
+    /**
+     * The minimum standard deviation, in milliseconds, so very stable latencies do not turn
+     * sub-millisecond jitter into large scores.
+     */
+    static final double MIN_LATENCY_DEVIATION = 1.0;
+
+    /**
+     * The slot holding the persisted counters, or -1 if they are not persisted.
+     */
+    int slot = -1;
+    long timestamp;
+    int successCount;
+    int faultCount;
+    int count;
+    long totalTime;
+    long lifetimeSuccessCount;
+    long lifetimeFaultCount;
+    long lifetimeCount;
+    long lifetimeTotalTime;
+    long lifetimeMinTime = -1;
+    long lifetimeMaxTime;
+    double latencyMean;
+    double latencyVariance;
+    int latencySamples;
+    /**
+     * The most recent intervals, oldest first.
+     */
+    private final LinkedList<DerivedMetrics> history = new LinkedList<DerivedMetrics>();
+
+    /**
+     * The delta between two readings of a 32-bit counter, allowing for wraparound.
+     */
+    static long counterDelta(final int previous, final int current) {
+        return (current - previous) & COUNTER_MASK;
+    }
+
+    /**
+     * Whether the counters have been reset since the previous reading.  The total time is a
+     * 64-bit value which only decreases on reset, while a counter which appears to have advanced
+     * by more than half its range has moved backwards rather than wrapped.
+     */
+    static boolean isReset(final int previousCount, final long previousTotalTime, final Metrics current) {
+        return (current.getTotalTime() < previousTotalTime)
+                || (counterDelta(previousCount, current.getTotalCount()) > Integer.MAX_VALUE);
+    }
+
+    /**
+     * Derive the interval metrics from the current snapshot and fold it into the counters.
+     * 
+     * @param current The current snapshot.
+     * @param windowed Whether the server counters are reset after every read.
+     * @return The derived metrics.
+     */
+    DerivedMetrics update(final Metrics current, final boolean windowed) {
+        final long interval = (timestamp > 0 ? current.getTimestamp() - timestamp : 0);
+        final long successDelta;
+        final long faultDelta;
+        final long countDelta;
+        final long totalTimeDelta;
+        if (isReset(count, totalTime, current)) {
+            // Everything reported was accumulated since the reset
+            successDelta = counterDelta(0, current.getSuccessCount());
+            faultDelta = counterDelta(0, current.getFaultCount());
+            countDelta = counterDelta(0, current.getTotalCount());
+            totalTimeDelta = current.getTotalTime();
+        } else {
+            successDelta = counterDelta(successCount, current.getSuccessCount());
+            faultDelta = counterDelta(faultCount, current.getFaultCount());
+            countDelta = counterDelta(count, current.getTotalCount());
+            totalTimeDelta = current.getTotalTime() - totalTime;
+        }
+        lifetimeSuccessCount += successDelta;
+        lifetimeFaultCount += faultDelta;
+        lifetimeCount += countDelta;
+        lifetimeTotalTime += totalTimeDelta;
+        if (countDelta > 0) {
+            lifetimeMinTime = (lifetimeMinTime < 0 ? current.getMinTime() : Math.min(lifetimeMinTime, current.getMinTime()));
+            lifetimeMaxTime = Math.max(lifetimeMaxTime, current.getMaxTime());
+        }
+
+        final Double latencyAnomalyScore = ((interval > 0) && (countDelta > 0) ? updateLatency((double)totalTimeDelta / countDelta) : null);
+
+        final DerivedMetrics derivedMetrics = new DerivedMetrics(interval, successDelta, faultDelta,
+                countDelta, totalTimeDelta, windowed, current.getMinTime(), current.getMaxTime(),
+                lifetimeSuccessCount, lifetimeFaultCount, lifetimeCount, lifetimeTotalTime,
+                Math.max(lifetimeMinTime, 0), lifetimeMaxTime, latencyAnomalyScore);
+
+        timestamp = current.getTimestamp();
+        successCount = current.getSuccessCount();
+        faultCount = current.getFaultCount();
+        count = current.getTotalCount();
+        totalTime = current.getTotalTime();
+        if (derivedMetrics.hasInterval()) {
+            history.addLast(derivedMetrics);
+            if (history.size() > HISTORY_SIZE) {
+                history.removeFirst();
+            }
+        }
+        return derivedMetrics;
+    }
+
+    /**
+     * Score the interval average processing time against the exponentially weighted moving
+     * average and variance of the previous intervals, then fold it into them.
+     * 
+     * @return The deviation in standard deviations, or null while warming up.
+     */
+    Double updateLatency(final double latency) {
+        final Double score;
+        if (latencySamples >= LATENCY_WARMUP) {
+            score = Double.valueOf((latency - latencyMean) / Math.max(Math.sqrt(latencyVariance), MIN_LATENCY_DEVIATION));
+        } else {
+            score = null;
+        }
+        if (latencySamples == 0) {
+            latencyMean = latency;
+            latencyVariance = 0;
+        } else {
+            final double difference = latency - latencyMean;
+            final double increment = LATENCY_WEIGHT * difference;
+            latencyMean += increment;
+            latencyVariance = (1 - LATENCY_WEIGHT) * (latencyVariance + difference * increment);
+        }
+        latencySamples++;
+        return score;
+    }
+
+    List<DerivedMetrics> getHistory() {
+        return new ArrayList<DerivedMetrics>(history);
+    }
+
+    void resetBaseline(final long now) {
+        timestamp = now;
+        successCount = 0;
+        faultCount = 0;
+        count = 0;
+        totalTime = 0;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.switchyard.rhq.plugin.model.Application;
+import org.switchyard.rhq.plugin.model.Gateway;
+import org.switchyard.rhq.plugin.model.ModelUtil;
+import org.switchyard.rhq.plugin.model.Reference;
+import org.switchyard.rhq.plugin.model.Service;
+
+/**
+ * Tracks the state of every gateway across successive application snapshots, reporting each
+ * transition seen by the latest snapshot.
+ */
+public class GatewayStateTracker {
+    /**
+     * A change in the state of a gateway.
+     */
+    public static class StateChange {
+        private final String gatewayKey;
+        private final String previousState;
+        private final String state;
+        private final long timestamp;
+
+        StateChange(final String gatewayKey, final String previousState, final String state, final long timestamp) {
+            this.gatewayKey = gatewayKey;
+            this.previousState = previousState;
+            this.state = state;
+            this.timestamp = timestamp;
+        }
+
+        public String getGatewayKey() {
+            return gatewayKey;
+        }
+
+        public String getPreviousState() {
+            return previousState;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    /**
+     * The last known state of each gateway.
+     */
+    private final Map<String, String> states = new HashMap<String, String>();
+
+    /**
+     * Create the key identifying a gateway.
+     * 
+     * @param type The owner type, service or reference.
+     * @param application The application name.
+     * @param owner The service or reference name.
+     * @param gateway The gateway name.
+     */
+    public static String createKey(final String type, final String application, final String owner, final String gateway) {
+        return ModelUtil.createMetricKey(type, application, owner, gateway);
+    }
+
+    /**
+     * Compare the gateway states of the snapshot with the previous snapshot.  Gateways missing
+     * from the snapshot are forgotten, gateways without a previous state report no change.
+     * 
+     * @param applications The current applications, keyed by name.
+     * @param timestamp The time the snapshot was taken.
+     * @return The transitions since the previous snapshot, empty if there were none.
+     */
+    public synchronized List<StateChange> track(final Map<String, Application> applications, final long timestamp) {
+        final Map<String, String> currentStates = new HashMap<String, String>();
+        for (Map.Entry<String, Application> application: applications.entrySet()) {
+            for (Map.Entry<String, Service> service: application.getValue().getServices().entrySet()) {
+                addStates(currentStates, "service", application.getKey(), service.getKey(), service.getValue().getGateways());
+            }
+            for (Map.Entry<String, Reference> reference: application.getValue().getReferences().entrySet()) {
+                addStates(currentStates, "reference", application.getKey(), reference.getKey(), reference.getValue().getGateways());
+            }
+        }
+        final List<StateChange> changes = new ArrayList<StateChange>();
+        for (Map.Entry<String, String> entry: currentStates.entrySet()) {
+            final String key = entry.getKey();
+            final String state = entry.getValue();
+            if (states.containsKey(key)) {
+                final String previousState = states.get(key);
+                if ((state == null) ? (previousState != null) : !state.equals(previousState)) {
+                    changes.add(new StateChange(key, previousState, state, timestamp));
+                }
+            }
+        }
+        states.clear();
+        states.putAll(currentStates);
+        return changes;
+    }
+
+    private static void addStates(final Map<String, String> currentStates, final String type, final String application,
+            final String owner, final Map<String, Gateway> gateways) {
+        if (gateways != null) {
+            for (Map.Entry<String, Gateway> gateway: gateways.entrySet()) {
+                currentStates.put(createKey(type, application, owner, gateway.getKey()), gateway.getValue().getState());
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.switchyard.rhq.plugin.model.ModelUtil;
+
+/**
+ * Persists the counters of each entity in a memory mapped file, so the lifetime totals
+ * survive agent restarts.  Each entity occupies a fixed size record, identified by the
+ * 64-bit hash of its key, which is rewritten in place whenever its counters change.
+ * <p/>
+ * Records are kept when their entity disappears, so the totals survive a redeployment, and
+ * the file is compacted when opened, dropping the records not written for the retention period
+ * so removed and renamed services do not grow the file without bound.
+ */
+public class LifetimeCounterStore {
+    /**
+     * The logger instance.
+     */
+    private static Log LOG = LogFactory.getLog(LifetimeCounterStore.class);
+
+    /**
+     * The name of the counter file.
+     */
+    private static final String FILE_NAME = "lifetime-counters.dat";
+    /**
+     * The file magic, "SYLC".
+     */
+    private static final int MAGIC = 0x53594C43;
+    /**
+     * The file format version.
+     */
+    private static final int VERSION = 2;
+    /**
+     * The previous file format version, without the lifetime minimum and maximum processing times.
+     */
+    private static final int VERSION_1 = 1;
+    /**
+     * The header size, magic, version and record count, padded.
+     */
+    private static final int HEADER_SIZE = 16;
+    /**
+     * The offset of the record count within the header.
+     */
+    private static final int RECORD_COUNT_OFFSET = 8;
+    /**
+     * The record size, key hash, the baseline counters, the day last written, the lifetime counters
+     * and the lifetime minimum and maximum processing times.
+     */
+    private static final int RECORD_SIZE = 80;
+    /**
+     * The record size of the previous file format version.
+     */
+    private static final int VERSION_1_RECORD_SIZE = 64;
+    /**
+     * The offset of the day last written within a record.
+     */
+    private static final int LAST_WRITTEN_OFFSET = 20;
+    /**
+     * The number of days after which a record which has not been written is dropped.
+     */
+    private static final int RETENTION_DAYS = 30;
+    /**
+     * The length of a day in milliseconds.
+     */
+    private static final long DAY = 24*60*60*1000;
+    /**
+     * The interval between forcing the changes to disk.
+     */
+    private static final long FORCE_INTERVAL = 60*1000;
+    /**
+     * The initial number of records.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int recordCount;
+    private long forceTimestamp;
+    /**
+     * The record slot of each key hash.
+     */
+    private final Map<Long, Integer> slots = new HashMap<Long, Integer>();
+
+    /**
+     * Open the store within the directory, creating it if necessary.  The store
+     * silently ignores requests if it could not be opened.
+     * 
+     * @param directory The data directory of the resource.
+     */
+    public synchronized void open(final File directory) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            directory.mkdirs();
+            final File counterFile = new File(directory, FILE_NAME);
+            if (counterFile.isFile()) {
+                compact(directory, counterFile);
+            }
+            file = new RandomAccessFile(counterFile, "rw");
+            channel = file.getChannel();
+            final long size = channel.size();
+            if (size >= HEADER_SIZE) {
+                map(Math.max((int) ((size - HEADER_SIZE) / RECORD_SIZE), INITIAL_CAPACITY));
+                if ((buffer.getInt(0) == MAGIC) && (buffer.getInt(4) == VERSION)) {
+                    recordCount = Math.min(buffer.getInt(RECORD_COUNT_OFFSET), capacity);
+                    for (int slot = 0; slot < recordCount; slot++) {
+                        slots.put(Long.valueOf(buffer.getLong(offset(slot))), Integer.valueOf(slot));
+                    }
+                    forceTimestamp = System.currentTimeMillis();
+                    return;
+                }
+                LOG.warn("Discarding unrecognised SwitchYard counter file in " + directory);
+            }
+            map(INITIAL_CAPACITY);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(RECORD_COUNT_OFFSET, 0);
+            recordCount = 0;
+            forceTimestamp = System.currentTimeMillis();
+        } catch (final IOException ioe) {
+            LOG.warn("Unable to open SwitchYard counter file in " + directory, ioe);
+            close();
+        }
+    }
+
+    /**
+     * Rewrite the counter file without the records not written within the retention period.  The
+     * records are written to a temporary file which is renamed over the counter file, so the counter
+     * file is left intact if the agent stops part way through.
+     */
+    private void compact(final File directory, final File counterFile) {
+        final File tempFile = new File(directory, FILE_NAME + ".tmp");
+        try {
+            final List<byte[]> records = readRecords(directory, counterFile);
+            if (records == null) {
+                return;
+            }
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(RECORD_COUNT_OFFSET, records.size());
+            final FileOutputStream output = new FileOutputStream(tempFile);
+            try {
+                output.write(header.array());
+                for (byte[] record: records) {
+                    output.write(record);
+                }
+                output.getFD().sync();
+            } finally {
+                output.close();
+            }
+            if (!tempFile.renameTo(counterFile)) {
+                counterFile.delete();
+                if (!tempFile.renameTo(counterFile)) {
+                    LOG.warn("Unable to replace SwitchYard counter file in " + directory);
+                }
+            }
+        } catch (final IOException ioe) {
+            LOG.warn("Unable to compact SwitchYard counter file in " + directory, ioe);
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Read the records of the counter file, skipping records not written within the retention period.
+     * 
+     * Records of the previous version are converted, without minimum and maximum processing times.
+     * 
+     * @return The records, empty if the file is not recognised, or null if the file is unchanged.
+     */
+    private List<byte[]> readRecords(final File directory, final File counterFile) throws IOException {
+        final List<byte[]> records = new ArrayList<byte[]>();
+        final byte[] contents;
+        final RandomAccessFile input = new RandomAccessFile(counterFile, "r");
+        try {
+            contents = new byte[(int) input.length()];
+            input.readFully(contents);
+        } finally {
+            input.close();
+        }
+        final ByteBuffer view = ByteBuffer.wrap(contents);
+        final int version = (contents.length < HEADER_SIZE ? 0 : view.getInt(4));
+        if ((contents.length < HEADER_SIZE) || (view.getInt(0) != MAGIC) || ((version != VERSION) && (version != VERSION_1))) {
+            LOG.warn("Discarding unrecognised SwitchYard counter file in " + directory);
+            return records;
+        }
+        final int recordSize = (version == VERSION ? RECORD_SIZE : VERSION_1_RECORD_SIZE);
+        final int count = Math.min(view.getInt(RECORD_COUNT_OFFSET), (contents.length - HEADER_SIZE) / recordSize);
+        final int today = today();
+        boolean stamped = (version != VERSION);
+        for (int slot = 0; slot < count; slot++) {
+            final int offset = HEADER_SIZE + (slot * recordSize);
+            final int lastWritten = view.getInt(offset + LAST_WRITTEN_OFFSET);
+            if ((lastWritten == 0) || (today - lastWritten <= RETENTION_DAYS)) {
+                final byte[] record = new byte[RECORD_SIZE];
+                System.arraycopy(contents, offset, record, 0, recordSize);
+                if (recordSize < RECORD_SIZE) {
+                    // No minimum processing time has been seen
+                    ByteBuffer.wrap(record).putLong(64, -1);
+                }
+                if (lastWritten == 0) {
+                    // Written before the day was recorded, start its retention period now
+                    ByteBuffer.wrap(record).putInt(LAST_WRITTEN_OFFSET, today);
+                    stamped = true;
+                }
+                records.add(record);
+            }
+        }
+        if ((records.size() == count) && !stamped) {
+            return null;
+        }
+        if (LOG.isDebugEnabled() && (records.size() < count)) {
+            LOG.debug("Dropped " + (count - records.size()) + " SwitchYard counter records");
+        }
+        return records;
+    }
+
+    public synchronized void close() {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+        if (file != null) {
+            try {
+                file.close();
+            } catch (final IOException ioe) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to close SwitchYard counter file", ioe);
+                }
+            }
+            file = null;
+            channel = null;
+        }
+        slots.clear();
+    }
+
+    /**
+     * Restore the persisted counters of an entity, allocating its record if necessary.
+     * 
+     * @param key The entity key.
+     * @param counters The counters to restore.
+     */
+    public synchronized void restore(final String key, final EntityCounters counters) {
+        if (buffer == null) {
+            return;
+        }
+        final Long hash = Long.valueOf(ModelUtil.hash(key));
+        final Integer slot = slots.get(hash);
+        if (slot != null) {
+            final int offset = offset(slot.intValue());
+            counters.slot = slot.intValue();
+            counters.successCount = buffer.getInt(offset + 8);
+            counters.faultCount = buffer.getInt(offset + 12);
+            counters.count = buffer.getInt(offset + 16);
+            counters.totalTime = buffer.getLong(offset + 24);
+            counters.lifetimeSuccessCount = buffer.getLong(offset + 32);
+            counters.lifetimeFaultCount = buffer.getLong(offset + 40);
+            counters.lifetimeCount = buffer.getLong(offset + 48);
+            counters.lifetimeTotalTime = buffer.getLong(offset + 56);
+            counters.lifetimeMinTime = buffer.getLong(offset + 64);
+            counters.lifetimeMaxTime = buffer.getLong(offset + 72);
+        } else {
+            try {
+                if (recordCount == capacity) {
+                    map(capacity * 2);
+                }
+            } catch (final IOException ioe) {
+                LOG.warn("Unable to extend SwitchYard counter file", ioe);
+                return;
+            }
+            counters.slot = recordCount++;
+            buffer.putLong(offset(counters.slot), hash.longValue());
+            buffer.putInt(RECORD_COUNT_OFFSET, recordCount);
+            slots.put(hash, Integer.valueOf(counters.slot));
+        }
+    }
+
+    /**
+     * Write the counters of an entity to its record.
+     * 
+     * @param counters The counters to save.
+     */
+    public synchronized void save(final EntityCounters counters) {
+        if ((buffer == null) || (counters.slot < 0)) {
+            return;
+        }
+        final int offset = offset(counters.slot);
+        buffer.putInt(offset + 8, counters.successCount);
+        buffer.putInt(offset + 12, counters.faultCount);
+        buffer.putInt(offset + 16, counters.count);
+        buffer.putLong(offset + 24, counters.totalTime);
+        buffer.putLong(offset + 32, counters.lifetimeSuccessCount);
+        buffer.putLong(offset + 40, counters.lifetimeFaultCount);
+        buffer.putLong(offset + 48, counters.lifetimeCount);
+        buffer.putLong(offset + 56, counters.lifetimeTotalTime);
+        buffer.putLong(offset + 64, counters.lifetimeMinTime);
+        buffer.putLong(offset + 72, counters.lifetimeMaxTime);
+        buffer.putInt(offset + LAST_WRITTEN_OFFSET, today());
+        forceIfDue();
+    }
+
+    /**
+     * Force the changes to disk if the force interval has passed, bounding what a crash loses.
+     */
+    private void forceIfDue() {
+        final long now = System.currentTimeMillis();
+        if (now - forceTimestamp > FORCE_INTERVAL) {
+            buffer.force();
+            forceTimestamp = now;
+        }
+    }
+
+    private static int today() {
+        return (int) (System.currentTimeMillis() / DAY);
+    }
+
+    private void map(final int newCapacity) throws IOException {
+        capacity = newCapacity;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + ((long) capacity * RECORD_SIZE));
+    }
+
+    private static int offset(final int slot) {
+        return HEADER_SIZE + (slot * RECORD_SIZE);
+    }
+}
@@ -0,0 +1,455 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.rhq.modules.plugins.jbossas7.BaseServerComponent;
+import org.codehaus.jackson.JsonNode;
+import org.rhq.modules.plugins.jbossas7.json.Operation;
+import org.switchyard.rhq.plugin.operations.GetVersion;
+
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CIRCUIT_CLOSED;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CIRCUIT_HALF_OPEN;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CIRCUIT_OPEN;
+
+/**
+ * Executes the management operations of a SwitchYard subsystem with a deadline, so a hung
+ * call is abandoned rather than blocking the caller and every resource waiting on its result.
+ * <p/>
+ * Consecutive failed or slow calls open a circuit, operations are then skipped until a single
+ * get-version probe succeeds, leaving the callers with their last snapshots.
+ * <p/>
+ * The calls in progress and the calls started per second are limited, so the plugin never takes
+ * more than its share of the server management threads.  Waiting calls are admitted by priority.
+ */
+public class ManagementClient {
+    /**
+     * The logger instance.
+     */
+    private static Log LOG = LogFactory.getLog(ManagementClient.class);
+
+    /**
+     * The number of consecutive failed or slow calls opening the circuit.
+     */
+    private static final int FAILURE_THRESHOLD = 3;
+    /**
+     * The initial time the circuit stays open before probing.
+     */
+    private static final long OPEN_INTERVAL = 30*1000;
+    /**
+     * The maximum time the circuit stays open, doubled on every failed probe.
+     */
+    static final long MAX_OPEN_INTERVAL = 10*60*1000;
+    /**
+     * The weight of the latest call in the moving average latency.
+     */
+    private static final double LATENCY_WEIGHT = 0.2;
+    /**
+     * The multiple of the average latency below which the refresh interval is stretched.
+     */
+    private static final int LATENCY_REFRESH_FACTOR = 20;
+    /**
+     * The maximum multiple of the base refresh interval.
+     */
+    private static final int MAX_REFRESH_FACTOR = 10;
+
+    /**
+     * The priority of a management call, highest first.
+     */
+    public enum Priority {
+        OPERATION,
+        AVAILABILITY,
+        MEASUREMENT,
+        DISCOVERY
+    }
+
+    /**
+     * The server component executing the operations.
+     */
+    private final BaseServerComponent<?> server;
+    /**
+     * The deadline, in milliseconds, of a single operation.
+     */
+    private final long timeout;
+    /**
+     * The maximum number of calls in progress.
+     */
+    private final int maxConcurrentCalls;
+    /**
+     * The maximum number of calls started per second.
+     */
+    private final double maxCallsPerSecond;
+    /**
+     * The threads executing the operations, abandoned calls keep their thread until the connection gives up.
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "SwitchYard management call");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    /**
+     * The number of operations abandoned after their deadline.
+     */
+    private final AtomicLong timeouts = new AtomicLong();
+    /**
+     * The number of calls given up after waiting the deadline for a permit.
+     */
+    private final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * The lock guarding the permits.
+     */
+    private final Object permitLock = new Object();
+    /**
+     * The number of calls in progress, including abandoned calls the server is still processing.
+     */
+    private int activeCalls;
+    /**
+     * The calls which may be started without waiting for the rate limit.
+     */
+    private double tokens;
+    /**
+     * The time the tokens were last replenished.
+     */
+    private long tokenTimestamp = System.currentTimeMillis();
+    /**
+     * The number of calls waiting for a permit, indexed by priority.
+     */
+    private final int[] waiting = new int[Priority.values().length];
+
+    /**
+     * The circuit state.
+     */
+    private String state = CIRCUIT_CLOSED;
+    /**
+     * The number of consecutive failed or slow calls.
+     */
+    private int consecutiveFailures;
+    /**
+     * The time until which the circuit stays open.
+     */
+    private long openUntil;
+    /**
+     * The time the circuit stays open on the next failure.
+     */
+    private long openInterval = OPEN_INTERVAL;
+    /**
+     * The moving average latency of successful calls, or -1 before the first.
+     */
+    private double averageLatency = -1;
+
+    /**
+     * Create the client.
+     * 
+     * @param server The server component executing the operations.
+     * @param timeout The deadline, in milliseconds, of a single operation.
+     * @param maxConcurrentCalls The maximum number of calls in progress.
+     * @param maxCallsPerSecond The maximum number of calls started per second.
+     */
+    public ManagementClient(final BaseServerComponent<?> server, final long timeout,
+            final int maxConcurrentCalls, final double maxCallsPerSecond) {
+        this.server = server;
+        this.timeout = timeout;
+        this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls);
+        this.maxCallsPerSecond = Math.max(0.1, maxCallsPerSecond);
+        tokens = Math.max(1.0, this.maxCallsPerSecond);
+    }
+
+    /**
+     * The deadline, in milliseconds, of a single operation.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * The number of operations abandoned after their deadline.
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * The number of calls given up after waiting the deadline for a permit.
+     */
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    /**
+     * The circuit state.
+     */
+    public synchronized String getState() {
+        return state;
+    }
+
+    /**
+     * The moving average latency, in milliseconds, of successful calls.
+     * 
+     * @return The latency, or null before the first successful call.
+     */
+    public synchronized Double getAverageLatency() {
+        return (averageLatency < 0 ? null : Double.valueOf(averageLatency));
+    }
+
+    /**
+     * The refresh interval, stretched from the base interval while the management latency is high.
+     * 
+     * @param base The base refresh interval.
+     * @return The refresh interval.
+     */
+    public synchronized long getRefreshInterval(final long base) {
+        if (averageLatency < 0) {
+            return base;
+        }
+        return Math.min(base * MAX_REFRESH_FACTOR, Math.max(base, (long) (averageLatency * LATENCY_REFRESH_FACTOR)));
+    }
+
+    /**
+     * Execute an operation, abandoning it if no response arrives before the deadline.
+     * 
+     * @param priority The priority of the call.
+     * @param operation The operation.
+     * @param clazz The result type.
+     * @return The result, or null if the operation failed, timed out, was rejected or the circuit is open.
+     */
+    public <T> T execute(final Priority priority, final Operation operation, final Class<T> clazz) {
+        return SwitchYardDiscoveryComponent.readResult(executeRaw(priority, operation), operation, clazz);
+    }
+
+    /**
+     * Execute an operation, returning the full response including the outcome and any failure description.
+     * 
+     * @param priority The priority of the call.
+     * @param operation The operation.
+     * @return The response, or null if no response arrived, the call was rejected or the circuit is open.
+     */
+    public JsonNode executeRaw(final Priority priority, final Operation operation) {
+        if (!acquire()) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Management circuit open, skipping operation " + operation);
+            }
+            return null;
+        }
+        return call(priority, operation);
+    }
+
+    /**
+     * Check whether an operation may be executed, probing the server once the open interval has passed.
+     */
+    private boolean acquire() {
+        synchronized(this) {
+            if (CIRCUIT_CLOSED.equals(state)) {
+                return true;
+            }
+            if (CIRCUIT_HALF_OPEN.equals(state) || (now() < openUntil)) {
+                return false;
+            }
+            state = CIRCUIT_HALF_OPEN;
+        }
+        boolean recovered = false;
+        try {
+            recovered = (call(Priority.AVAILABILITY, new GetVersion()) != null) && CIRCUIT_CLOSED.equals(getState());
+        } finally {
+            synchronized(this) {
+                if (CIRCUIT_HALF_OPEN.equals(state)) {
+                    // The probe never reached the server, reopen rather than rejecting every call from now on
+                    open();
+                }
+            }
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Management circuit probe " + (recovered ? "succeeded" : "failed"));
+        }
+        return recovered;
+    }
+
+    /**
+     * Send an operation to the server, recording its outcome in the circuit.
+     * 
+     * @param priority The priority of the call.
+     * @param operation The operation.
+     * @return The response, or null if the server did not respond before the deadline.
+     */
+    private JsonNode call(final Priority priority, final Operation operation) {
+        final long start = now();
+        if (!acquirePermit(priority, System.currentTimeMillis() + timeout)) {
+            rejections.incrementAndGet();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("No management permit for operation " + operation + " within " + timeout + "ms");
+            }
+            return null;
+        }
+        final Future<JsonNode> future;
+        try {
+            future = executor.submit(new Callable<JsonNode>() {
+                public JsonNode call() {
+                    try {
+                        return send(operation);
+                    } finally {
+                        // Released once the server has finished, even if the caller abandoned the call
+                        releasePermit();
+                    }
+                }
+            });
+        } catch (final RuntimeException re) {
+            releasePermit();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Unable to submit operation " + operation, re);
+            }
+            return null;
+        }
+        JsonNode response = null;
+        try {
+            response = future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException te) {
+            future.cancel(true);
+            timeouts.incrementAndGet();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Abandoned operation " + operation + " after " + timeout + "ms");
+            }
+        } catch (final InterruptedException ie) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException ee) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Failure executing operation " + operation, ee.getCause());
+            }
+        }
+        record(response != null, now() - start);
+        return response;
+    }
+
+    /**
+     * Send an operation to the server, waiting for its response.
+     * 
+     * @param operation The operation.
+     * @return The response, or null if the server did not respond.
+     */
+    JsonNode send(final Operation operation) {
+        return SwitchYardDiscoveryComponent.executeRaw(server, operation);
+    }
+
+    /**
+     * The current time, in milliseconds, against which the circuit is timed.
+     */
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Record the outcome of a call, a call taking more than half the deadline counts as a failure.
+     */
+    private synchronized void record(final boolean responded, final long duration) {
+        if (responded) {
+            averageLatency = (averageLatency < 0 ? duration : averageLatency + LATENCY_WEIGHT * (duration - averageLatency));
+        }
+        final boolean failed = !responded || (duration > timeout / 2);
+        if (CIRCUIT_HALF_OPEN.equals(state)) {
+            if (failed) {
+                openInterval = Math.min(openInterval * 2, MAX_OPEN_INTERVAL);
+                open();
+            } else {
+                state = CIRCUIT_CLOSED;
+                consecutiveFailures = 0;
+                openInterval = OPEN_INTERVAL;
+            }
+        } else if (!failed) {
+            consecutiveFailures = 0;
+        } else if ((++consecutiveFailures >= FAILURE_THRESHOLD) && CIRCUIT_CLOSED.equals(state)) {
+            open();
+        }
+    }
+
+    /**
+     * Wait for a permit to start a call, admitting no call while a call of higher priority is waiting.
+     * 
+     * @param priority The priority of the call.
+     * @param deadline The time after which the call is given up.
+     * @return true if the permit was acquired.
+     */
+    private boolean acquirePermit(final Priority priority, final long deadline) {
+        synchronized(permitLock) {
+            waiting[priority.ordinal()]++;
+            try {
+                while (true) {
+                    final long now = System.currentTimeMillis();
+                    tokens = Math.min(Math.max(1.0, maxCallsPerSecond), tokens + (now - tokenTimestamp) * maxCallsPerSecond / 1000);
+                    tokenTimestamp = now;
+                    if ((activeCalls < maxConcurrentCalls) && (tokens >= 1.0) && !isHigherPriorityWaiting(priority)) {
+                        activeCalls++;
+                        tokens -= 1.0;
+                        return true;
+                    }
+                    final long remaining = deadline - now;
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    final long replenish = (tokens < 1.0 ? (long) Math.ceil((1.0 - tokens) * 1000 / maxCallsPerSecond) : remaining);
+                    permitLock.wait(Math.max(1, Math.min(remaining, replenish)));
+                }
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                waiting[priority.ordinal()]--;
+                permitLock.notifyAll();
+            }
+        }
+    }
+
+    private boolean isHigherPriorityWaiting(final Priority priority) {
+        for (int count = 0; count < priority.ordinal(); count++) {
+            if (waiting[count] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void releasePermit() {
+        synchronized(permitLock) {
+            activeCalls--;
+            permitLock.notifyAll();
+        }
+    }
+
+    private void open() {
+        state = CIRCUIT_OPEN;
+        openUntil = now() + openInterval;
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Management circuit opened for " + openInterval + "ms");
+        }
+    }
+
+    /**
+     * Stop executing operations, interrupting any still in progress.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
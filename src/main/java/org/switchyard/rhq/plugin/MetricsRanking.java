@@ -0,0 +1,205 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.switchyard.rhq.plugin.model.ComponentServiceMetrics;
+import org.switchyard.rhq.plugin.model.DerivedMetrics;
+import org.switchyard.rhq.plugin.model.Metrics;
+import org.switchyard.rhq.plugin.model.OperationMetrics;
+import org.switchyard.rhq.plugin.model.ReferenceMetrics;
+import org.switchyard.rhq.plugin.model.ServiceMetrics;
+
+/**
+ * Ranks the services, references, component services and their operations
+ * using the cached metric snapshots.
+ */
+public class MetricsRanking {
+    /**
+     * The criteria used to rank the entities.
+     */
+    public enum Criterion {
+        AVERAGE_TIME("averageTime") {
+            Double getValue(final Metrics metrics) {
+                return (metrics.getTotalCount() > 0 ? Double.valueOf(metrics.getAverageTime()) : null);
+            }
+        },
+        MAX_TIME("maxTime") {
+            Double getValue(final Metrics metrics) {
+                return (metrics.getTotalCount() > 0 ? Double.valueOf(metrics.getMaxTime()) : null);
+            }
+        },
+        FAULT_RATIO("faultRatio") {
+            Double getValue(final Metrics metrics) {
+                return (metrics.getTotalCount() > 0 ? Double.valueOf((double)metrics.getFaultCount() / metrics.getTotalCount()) : null);
+            }
+        },
+        THROUGHPUT("throughput") {
+            Double getValue(final Metrics metrics) {
+                final DerivedMetrics derivedMetrics = metrics.getDerivedMetrics();
+                return ((derivedMetrics != null) && derivedMetrics.hasInterval() ? Double.valueOf(derivedMetrics.getInvocationRate()) : null);
+            }
+        };
+
+        private final String name;
+
+        private Criterion(final String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * The value of the criterion, or null if it cannot be determined.
+         */
+        abstract Double getValue(final Metrics metrics);
+    }
+
+    /**
+     * A ranked entity.
+     */
+    public static class Entry {
+        private final String type;
+        private final String application;
+        private final String name;
+        private final double value;
+
+        Entry(final String type, final String application, final String name, final double value) {
+            this.type = type;
+            this.application = application;
+            this.name = name;
+            this.value = value;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getApplication() {
+            return application;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * The entity type of a service.
+     */
+    public static final String TYPE_SERVICE = "service";
+    /**
+     * The entity type of a reference.
+     */
+    public static final String TYPE_REFERENCE = "reference";
+    /**
+     * The entity type of a component service.
+     */
+    public static final String TYPE_COMPONENT_SERVICE = "componentService";
+    /**
+     * The suffix of the entity type of an operation.
+     */
+    private static final String TYPE_OPERATION_SUFFIX = "Operation";
+
+    /**
+     * An entity available for ranking.
+     */
+    private static class Candidate {
+        private final String type;
+        private final String application;
+        private final String name;
+        private final Metrics metrics;
+
+        Candidate(final String type, final String application, final String name, final Metrics metrics) {
+            this.type = type;
+            this.application = application;
+            this.name = name;
+            this.metrics = metrics;
+        }
+    }
+
+    private final List<Candidate> candidates = new ArrayList<Candidate>();
+
+    public void addServiceMetrics(final Map<String, Map<String, ServiceMetrics>> serviceMetrics, final boolean includeOperations) {
+        for (Map<String, ServiceMetrics> applicationMetrics: serviceMetrics.values()) {
+            for (ServiceMetrics metrics: applicationMetrics.values()) {
+                add(TYPE_SERVICE, metrics.getApplication(), metrics.getName(), metrics,
+                        (includeOperations ? metrics.getOperationMetrics() : null));
+            }
+        }
+    }
+
+    public void addReferenceMetrics(final Map<String, Map<String, ReferenceMetrics>> referenceMetrics, final boolean includeOperations) {
+        for (Map<String, ReferenceMetrics> applicationMetrics: referenceMetrics.values()) {
+            for (ReferenceMetrics metrics: applicationMetrics.values()) {
+                add(TYPE_REFERENCE, metrics.getApplication(), metrics.getName(), metrics,
+                        (includeOperations ? metrics.getOperationMetrics() : null));
+            }
+        }
+    }
+
+    public void addComponentServiceMetrics(final Map<String, Map<String, ComponentServiceMetrics>> componentServiceMetrics, final boolean includeOperations) {
+        for (Map<String, ComponentServiceMetrics> applicationMetrics: componentServiceMetrics.values()) {
+            for (ComponentServiceMetrics metrics: applicationMetrics.values()) {
+                add(TYPE_COMPONENT_SERVICE, metrics.getApplication(), metrics.getName(), metrics,
+                        (includeOperations ? metrics.getOperationMetrics() : null));
+            }
+        }
+    }
+
+    private void add(final String type, final String application, final String name, final Metrics metrics,
+            final Map<String, OperationMetrics> operationMetrics) {
+        candidates.add(new Candidate(type, application, name, metrics));
+        if (operationMetrics != null) {
+            for (OperationMetrics operation: operationMetrics.values()) {
+                candidates.add(new Candidate(type + TYPE_OPERATION_SUFFIX, application,
+                        name + "/" + operation.getName(), operation));
+            }
+        }
+    }
+
+    /**
+     * Rank the entities by the criterion, highest first.
+     * 
+     * @param criterion The ranking criterion.
+     * @param limit The maximum number of entities to return.
+     * @return The highest ranked entities.
+     */
+    public List<Entry> getTop(final Criterion criterion, final int limit) {
+        final List<Entry> entries = new ArrayList<Entry>();
+        for (Candidate candidate: candidates) {
+            final Double value = criterion.getValue(candidate.metrics);
+            if (value != null) {
+                entries.add(new Entry(candidate.type, candidate.application, candidate.name, value.doubleValue()));
+            }
+        }
+        Collections.sort(entries, new Comparator<Entry>() {
+            public int compare(final Entry first, final Entry second) {
+                return Double.compare(second.getValue(), first.getValue());
+            }
+        });
+        return (entries.size() > limit ? entries.subList(0, Math.max(limit, 0)) : entries);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.switchyard.rhq.plugin.model.DerivedMetrics;
+import org.switchyard.rhq.plugin.model.Metrics;
+
+/**
+ * Tracks successive metric snapshots, deriving the interval metrics of each entity
+ * from the difference with its previous snapshot and accumulating its lifetime counters.
+ * Counter resets, whether through reset-metrics or a redeployment, and 32-bit wraparound
+ * are detected so the interval and lifetime metrics remain monotonic.
+ */
+public class MetricsTracker {
+    /**
+     * The tracked counters of each entity.
+     */
+    private final Map<String, EntityCounters> entities = new HashMap<String, EntityCounters>();
+    /**
+     * The store persisting the counters across agent restarts.
+     */
+    private final LifetimeCounterStore store;
+    /**
+     * Whether the server counters are reset after every read.
+     */
+    private volatile boolean windowed;
+
+    public MetricsTracker(final LifetimeCounterStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Set whether the server counters are reset after every read, from the plugin configuration
+     * rather than the outcome of each reset, so a failed reset does not switch the reported
+     * metrics between the cumulative and the raw counters.
+     * 
+     * @param windowed true if the counters are reset after every read.
+     */
+    public void setWindowed(final boolean windowed) {
+        this.windowed = windowed;
+    }
+
+    /**
+     * Derive the metrics for the current snapshot, replacing the previous snapshot.
+     * Entities missing from the current snapshot are forgotten, their persisted counters
+     * are kept so they are restored if the entity reappears after a redeployment, and
+     * dropped by the store once they have not been written for its retention period.
+     * 
+     * @param currentMetrics The current metrics, keyed by entity.
+     */
+    public synchronized void track(final Map<String, ? extends Metrics> currentMetrics) {
+        final Map<String, EntityCounters> currentEntities = new HashMap<String, EntityCounters>();
+        for (Map.Entry<String, ? extends Metrics> entry: currentMetrics.entrySet()) {
+            EntityCounters counters = entities.get(entry.getKey());
+            if (counters == null) {
+                counters = new EntityCounters();
+                store.restore(entry.getKey(), counters);
+            }
+            final Metrics current = entry.getValue();
+            current.setDerivedMetrics(counters.update(current, windowed));
+            store.save(counters);
+            currentEntities.put(entry.getKey(), counters);
+        }
+        entities.clear();
+        entities.putAll(currentEntities);
+    }
+
+    /**
+     * Record that the counters of the entities have been reset on the server,
+     * starting a new window.
+     * 
+     * @param keys The keys of the reset entities.
+     */
+    public synchronized void resetBaseline(final Collection<String> keys) {
+        final long now = System.currentTimeMillis();
+        for (String key: keys) {
+            final EntityCounters counters = entities.get(key);
+            if (counters != null) {
+                counters.resetBaseline(now);
+                store.save(counters);
+            }
+        }
+    }
+
+    /**
+     * The recent interval metrics of an entity, oldest first.
+     * 
+     * @param key The key of the entity.
+     * @return The interval metrics, empty if the entity is not tracked.
+     */
+    public synchronized List<DerivedMetrics> getHistory(final String key) {
+        final EntityCounters counters = entities.get(key);
+        if (counters == null) {
+            return Collections.emptyList();
+        }
+        return counters.getHistory();
+    }
+}
@@ -35,6 +35,10 @@ public class ReferenceBindingDiscoveryComponent implements ResourceDiscoveryComp
      * The logger instance.
      */
     private static Log LOG = LogFactory.getLog(ReferenceBindingDiscoveryComponent.class);
+    /**
+     * The resources discovered beneath each parent, reused while its generation is unchanged.
+     */
+    private final DiscoveryCache cache = new DiscoveryCache();
 
     /**
      * Discover existing resources.
@@ -45,11 +49,20 @@ public class ReferenceBindingDiscoveryComponent implements ResourceDiscoveryComp
      */
     @Override
     public Set<DiscoveredResourceDetails> discoverResources(final ResourceDiscoveryContext<ReferenceResourceComponent> context) {
+        final ReferenceResourceComponent parent = context.getParentResourceComponent();
+        return cache.discover(parent, parent.getGeneration(), new DiscoveryCache.Discoverer() {
+            public Set<DiscoveredResourceDetails> discover() {
+                return findResources(context, parent);
+            }
+        });
+    }
 
+    /**
+     * Discover the resources beneath the parent, when they are not cached.
+     */
+    private Set<DiscoveredResourceDetails> findResources(final ResourceDiscoveryContext<ReferenceResourceComponent> context, final ReferenceResourceComponent parent) {
         final HashSet<DiscoveredResourceDetails> discoveredResources = new HashSet<DiscoveredResourceDetails>();
-        
-        final ReferenceResourceComponent parent = context.getParentResourceComponent();
-        
+
         final Map<String, Gateway> gateways = parent.getGateways();
 
         if (gateways != null) {
@@ -64,7 +77,7 @@ public class ReferenceBindingDiscoveryComponent implements ResourceDiscoveryComp
                         pluginConfig, null);
 
                 discoveredResources.add(resource);
-                
+
                 LOG.debug("Discovered SwitchYard Reference Binding " + gateway);
             }
         }
@@ -14,7 +14,6 @@
 package org.switchyard.rhq.plugin;
 
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 import javax.xml.namespace.QName;
@@ -25,7 +24,6 @@ import org.rhq.core.domain.configuration.Configuration;
 import org.rhq.core.pluginapi.inventory.DiscoveredResourceDetails;
 import org.rhq.core.pluginapi.inventory.ResourceDiscoveryComponent;
 import org.rhq.core.pluginapi.inventory.ResourceDiscoveryContext;
-import org.switchyard.rhq.plugin.model.OperationMetrics;
 import org.switchyard.rhq.plugin.model.Reference;
 
 /**
@@ -36,6 +34,10 @@ public class ReferenceOperationDiscoveryComponent implements ResourceDiscoveryCo
      * The logger instance.
      */
     private static Log LOG = LogFactory.getLog(ReferenceOperationDiscoveryComponent.class);
+    /**
+     * The resources discovered beneath each parent, reused while its generation is unchanged.
+     */
+    private final DiscoveryCache cache = new DiscoveryCache();
 
     /**
      * Discover existing resources.
@@ -46,25 +48,35 @@ public class ReferenceOperationDiscoveryComponent implements ResourceDiscoveryCo
      */
     @Override
     public Set<DiscoveredResourceDetails> discoverResources(final ResourceDiscoveryContext<ReferenceResourceComponent> context) {
+        final ReferenceResourceComponent parent = context.getParentResourceComponent();
+        return cache.discover(parent, parent.getOperationGeneration(), new DiscoveryCache.Discoverer() {
+            public Set<DiscoveredResourceDetails> discover() {
+                return findResources(context, parent);
+            }
+        });
+    }
 
+    /**
+     * Discover the resources beneath the parent, when they are not cached.
+     */
+    private Set<DiscoveredResourceDetails> findResources(final ResourceDiscoveryContext<ReferenceResourceComponent> context, final ReferenceResourceComponent parent) {
         final HashSet<DiscoveredResourceDetails> discoveredResources = new HashSet<DiscoveredResourceDetails>();
-        
-        final ReferenceResourceComponent parent = context.getParentResourceComponent();
+
         final Reference reference = parent.getReference() ;
         if (reference != null)
         {
-            Map<String, OperationMetrics> metrics = parent.getOperationMetrics();
+            final Set<String> operationNames = parent.getOperationNames();
             final QName referenceName = reference.getName();
-            
-            for (String operationName : metrics.keySet()) {
+
+            for (String operationName : operationNames) {
                 final Configuration pluginConfig = context.getDefaultPluginConfiguration();
-    
+
                 final DiscoveredResourceDetails resource = new DiscoveredResourceDetails(
                         context.getResourceType(), operationName, operationName,
                         referenceName.getNamespaceURI(), null, pluginConfig, null);
-    
+
                 discoveredResources.add(resource);
-                
+
                 LOG.debug("Discovered SwitchYard Reference Operation " + operationName);
             }
         }
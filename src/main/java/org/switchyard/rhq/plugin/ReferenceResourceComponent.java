@@ -81,6 +81,20 @@ public class ReferenceResourceComponent extends BaseSwitchYardResourceComponent<
         return (referenceMetrics != null) ? referenceMetrics.get(operationKey) : null;
     }
 
+    public long getGeneration() {
+        return getResourceContext().getParentResourceComponent().getGeneration();
+    }
+
+    public long getOperationGeneration() {
+        final String referenceKey = getResourceContext().getResourceKey();
+        return getResourceContext().getParentResourceComponent().getOperationGeneration(TopologyIndex.TYPE_REFERENCE, referenceKey);
+    }
+
+    public Set<String> getOperationNames() {
+        final String referenceKey = getResourceContext().getResourceKey();
+        return getResourceContext().getParentResourceComponent().getOperationNames(TopologyIndex.TYPE_REFERENCE, referenceKey);
+    }
+
     public Map<String, OperationMetrics> getOperationMetrics() {
         final ReferenceMetrics referenceMetrics = getReferenceMetrics();
         if (referenceMetrics != null) {
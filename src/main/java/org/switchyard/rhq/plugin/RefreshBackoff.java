@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+/**
+ * Schedules the retries of a cache whose last load failed.  The previous snapshot is kept and
+ * marked as stale, and the load is retried on a short backoff rather than after a full refresh.
+ */
+class RefreshBackoff {
+    /**
+     * The delay before the first retry, doubled on every further failure.
+     */
+    private static final long RETRY_INTERVAL = 5*1000;
+
+    /**
+     * The name of the cache.
+     */
+    private final String name;
+    /**
+     * The number of consecutive failed loads.
+     */
+    private int failures;
+
+    RefreshBackoff(final String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Record a failed load.
+     * 
+     * @param refresh The refresh interval, bounding the delay.
+     * @return The refresh timestamp making the next load due after the retry delay.
+     */
+    synchronized long failed(final long refresh) {
+        final long delay = Math.min(refresh, RETRY_INTERVAL << Math.min(failures, 16));
+        failures++;
+        return System.currentTimeMillis() - refresh + delay;
+    }
+
+    synchronized void succeeded() {
+        failures = 0;
+    }
+
+    /**
+     * Whether the snapshot is stale, its last load having failed.
+     */
+    synchronized boolean isStale() {
+        return failures > 0;
+    }
+}
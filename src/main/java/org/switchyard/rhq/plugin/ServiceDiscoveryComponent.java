@@ -35,6 +35,10 @@ public class ServiceDiscoveryComponent implements ResourceDiscoveryComponent<App
      * The logger instance.
      */
     private static Log LOG = LogFactory.getLog(ServiceDiscoveryComponent.class);
+    /**
+     * The resources discovered beneath each parent, reused while its generation is unchanged.
+     */
+    private final DiscoveryCache cache = new DiscoveryCache();
 
     /**
      * Discover existing resources.
@@ -45,11 +49,20 @@ public class ServiceDiscoveryComponent implements ResourceDiscoveryComponent<App
      */
     @Override
     public Set<DiscoveredResourceDetails> discoverResources(final ResourceDiscoveryContext<ApplicationResourceComponent> context) {
+        final ApplicationResourceComponent parent = context.getParentResourceComponent();
+        return cache.discover(parent, parent.getGeneration(), new DiscoveryCache.Discoverer() {
+            public Set<DiscoveredResourceDetails> discover() {
+                return findResources(context, parent);
+            }
+        });
+    }
 
+    /**
+     * Discover the resources beneath the parent, when they are not cached.
+     */
+    private Set<DiscoveredResourceDetails> findResources(final ResourceDiscoveryContext<ApplicationResourceComponent> context, final ApplicationResourceComponent parent) {
         final HashSet<DiscoveredResourceDetails> discoveredResources = new HashSet<DiscoveredResourceDetails>();
-        
-        final ApplicationResourceComponent parent = context.getParentResourceComponent();
-        
+
         final Map<String, Service> services = parent.getServices();
 
         for (Service service : services.values()) {
@@ -63,7 +76,7 @@ public class ServiceDiscoveryComponent implements ResourceDiscoveryComponent<App
                     pluginConfig, null);
 
             discoveredResources.add(resource);
-            
+
             LOG.debug("Discovered SwitchYard Service " + service);
         }
 
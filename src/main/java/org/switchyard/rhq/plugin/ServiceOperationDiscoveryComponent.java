@@ -14,7 +14,6 @@
 package org.switchyard.rhq.plugin;
 
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 import javax.xml.namespace.QName;
@@ -25,7 +24,6 @@ import org.rhq.core.domain.configuration.Configuration;
 import org.rhq.core.pluginapi.inventory.DiscoveredResourceDetails;
 import org.rhq.core.pluginapi.inventory.ResourceDiscoveryComponent;
 import org.rhq.core.pluginapi.inventory.ResourceDiscoveryContext;
-import org.switchyard.rhq.plugin.model.OperationMetrics;
 import org.switchyard.rhq.plugin.model.Service;
 
 /**
@@ -36,6 +34,10 @@ public class ServiceOperationDiscoveryComponent implements ResourceDiscoveryComp
      * The logger instance.
      */
     private static Log LOG = LogFactory.getLog(ServiceOperationDiscoveryComponent.class);
+    /**
+     * The resources discovered beneath each parent, reused while its generation is unchanged.
+     */
+    private final DiscoveryCache cache = new DiscoveryCache();
 
     /**
      * Discover existing resources.
@@ -46,25 +48,35 @@ public class ServiceOperationDiscoveryComponent implements ResourceDiscoveryComp
      */
     @Override
     public Set<DiscoveredResourceDetails> discoverResources(final ResourceDiscoveryContext<ServiceResourceComponent> context) {
+        final ServiceResourceComponent parent = context.getParentResourceComponent();
+        return cache.discover(parent, parent.getOperationGeneration(), new DiscoveryCache.Discoverer() {
+            public Set<DiscoveredResourceDetails> discover() {
+                return findResources(context, parent);
+            }
+        });
+    }
 
+    /**
+     * Discover the resources beneath the parent, when they are not cached.
+     */
+    private Set<DiscoveredResourceDetails> findResources(final ResourceDiscoveryContext<ServiceResourceComponent> context, final ServiceResourceComponent parent) {
         final HashSet<DiscoveredResourceDetails> discoveredResources = new HashSet<DiscoveredResourceDetails>();
-        
-        final ServiceResourceComponent parent = context.getParentResourceComponent();
+
         final Service service = parent.getService() ;
         if (service != null)
         {
-            Map<String, OperationMetrics> metrics = parent.getOperationMetrics();
+            final Set<String> operationNames = parent.getOperationNames();
             final QName serviceName = service.getName();
-            
-            for (String operationName : metrics.keySet()) {
+
+            for (String operationName : operationNames) {
                 final Configuration pluginConfig = context.getDefaultPluginConfiguration();
-    
+
                 final DiscoveredResourceDetails resource = new DiscoveredResourceDetails(
                         context.getResourceType(), operationName, operationName,
                         serviceName.getNamespaceURI(), null, pluginConfig, null);
-    
+
                 discoveredResources.add(resource);
-                
+
                 LOG.debug("Discovered SwitchYard Service Operation " + operationName);
             }
         }
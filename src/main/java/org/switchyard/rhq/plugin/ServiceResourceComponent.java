@@ -13,20 +13,48 @@
  */
 package org.switchyard.rhq.plugin;
 
+import static org.switchyard.rhq.plugin.SwitchYardConstants.INVOCATION_FAILURE_DESCRIPTION;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.INVOCATION_OUTCOME;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_MAX_REQUESTS;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_THROTTLING_ENABLED;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_THROTTLING_HEADROOM;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_THROTTLING_UTILISATION;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_TIME_PERIOD;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_PARAMETER_ALLOW_DECREASE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_PARAMETER_APPLY;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_PARAMETER_ENABLED;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_PARAMETER_MAX_REQUESTS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_PARAMETER_TARGET_LATENCY;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RECOMMEND_THROTTLING;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESET;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_BASELINE_LATENCY;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_CAPACITY;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_CONCURRENCY;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_CURRENT_MAX_REQUESTS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_FAILURE_DESCRIPTION;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_LATENCY;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_OUTCOME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_RECOMMENDED_MAX_REQUESTS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_SAMPLES;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_THROUGHPUT;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_SET_THROTTLING;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_APPLIED;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_FAILED;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_INSUFFICIENT_HISTORY;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_RECOMMENDED;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_RETAINED;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_SUCCESS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_TARGET_UNATTAINABLE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_UNKNOWN;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.codehaus.jackson.JsonNode;
 import org.rhq.core.domain.configuration.Configuration;
 import org.rhq.core.domain.configuration.PropertySimple;
 import org.rhq.core.domain.measurement.AvailabilityType;
@@ -39,6 +67,7 @@ import org.rhq.core.pluginapi.operation.OperationFacet;
 import org.rhq.core.pluginapi.operation.OperationResult;
 import org.rhq.modules.plugins.jbossas7.json.Operation;
 import org.switchyard.rhq.plugin.model.Application;
+import org.switchyard.rhq.plugin.model.DerivedMetrics;
 import org.switchyard.rhq.plugin.model.Gateway;
 import org.switchyard.rhq.plugin.model.GatewayMetrics;
 import org.switchyard.rhq.plugin.model.OperationMetrics;
@@ -56,6 +85,10 @@ public class ServiceResourceComponent extends BaseSwitchYardResourceComponent<Ap
      * The logger instance.
      */
     private static Log LOG = LogFactory.getLog(ServiceResourceComponent.class);
+    /**
+     * The factor above the lowest latency at which an interval is considered saturated.
+     */
+    private static final double SATURATION_LATENCY_FACTOR = 2.0;
     
     protected Log getLog() {
         return LOG;
@@ -95,6 +128,20 @@ public class ServiceResourceComponent extends BaseSwitchYardResourceComponent<Ap
         return (serviceMetrics != null) ? serviceMetrics.get(serviceKey) : null;
     }
 
+    public long getGeneration() {
+        return getResourceContext().getParentResourceComponent().getGeneration();
+    }
+
+    public long getOperationGeneration() {
+        final String serviceKey = getResourceContext().getResourceKey();
+        return getResourceContext().getParentResourceComponent().getOperationGeneration(TopologyIndex.TYPE_SERVICE, serviceKey);
+    }
+
+    public Set<String> getOperationNames() {
+        final String serviceKey = getResourceContext().getResourceKey();
+        return getResourceContext().getParentResourceComponent().getOperationNames(TopologyIndex.TYPE_SERVICE, serviceKey);
+    }
+
     public Map<String, OperationMetrics> getOperationMetrics() {
         final ServiceMetrics serviceMetrics = getServiceMetrics();
         if (serviceMetrics != null) {
@@ -135,6 +182,17 @@ public class ServiceResourceComponent extends BaseSwitchYardResourceComponent<Ap
                         report.addData(new MeasurementDataTrait(request, Long.toString(throttling.getTimePeriod())));
                     } else if (METRIC_MAX_REQUESTS.equals(name)) {
                         report.addData(new MeasurementDataTrait(request, Integer.toString(throttling.getMaxRequests())));
+                    } else if ((METRIC_THROTTLING_UTILISATION.equals(name) || METRIC_THROTTLING_HEADROOM.equals(name))
+                            && isCurrent(metrics.getTimestamp())) {
+                        final Double requestsPerPeriod = getRequestsPerPeriod(metrics, throttling);
+                        if (requestsPerPeriod != null) {
+                            final int maxRequests = throttling.getMaxRequests().intValue();
+                            if (METRIC_THROTTLING_UTILISATION.equals(name)) {
+                                report.addData(new MeasurementDataNumeric(request, Double.valueOf(requestsPerPeriod.doubleValue() / maxRequests)));
+                            } else {
+                                report.addData(new MeasurementDataNumeric(request, Double.valueOf(maxRequests - requestsPerPeriod.doubleValue())));
+                            }
+                        }
                     } else if (LOG.isDebugEnabled()) {
                         LOG.debug("Unable to collect Service measurement " + request.getName());
                     }
@@ -143,6 +201,24 @@ public class ServiceResourceComponent extends BaseSwitchYardResourceComponent<Ap
         }
     }
 
+    /**
+     * The number of requests observed during the last collection interval, scaled to the throttling time period.
+     * 
+     * @return The requests per time period, or null if there is no interval, throttling is disabled or there is no request limit.
+     */
+    private static Double getRequestsPerPeriod(final ServiceMetrics metrics, final Throttling throttling) {
+        final DerivedMetrics derivedMetrics = metrics.getDerivedMetrics();
+        if ((throttling == null) || !Boolean.TRUE.equals(throttling.isEnabled()) || (derivedMetrics == null) || !derivedMetrics.hasInterval()) {
+            return null;
+        }
+        final Integer maxRequests = throttling.getMaxRequests();
+        final Long timePeriod = throttling.getTimePeriod();
+        if ((maxRequests == null) || (maxRequests.intValue() <= 0) || (timePeriod == null) || (timePeriod.longValue() <= 0)) {
+            return null;
+        }
+        return Double.valueOf(derivedMetrics.getInvocationRate() * timePeriod.longValue() / 1000);
+    }
+
     @Override
     public OperationResult invokeOperation(final String name, final Configuration parameters) throws InterruptedException, Exception {
         if (OPERATION_RESET.equals(name)) {
@@ -168,12 +244,117 @@ public class ServiceResourceComponent extends BaseSwitchYardResourceComponent<Ap
                         Void.class);
                 clearApplications();
             }
+        } else if (OPERATION_RECOMMEND_THROTTLING.equals(name)) {
+            final PropertySimple targetLatency = (PropertySimple) parameters.get(OPERATION_PARAMETER_TARGET_LATENCY);
+            final PropertySimple apply = (PropertySimple) parameters.get(OPERATION_PARAMETER_APPLY);
+            final PropertySimple allowDecrease = (PropertySimple) parameters.get(OPERATION_PARAMETER_ALLOW_DECREASE);
+            if ((targetLatency == null) || (targetLatency.getLongValue() == null) || (targetLatency.getLongValue().longValue() <= 0)) {
+                final OperationResult result = new OperationResult();
+                result.setErrorMessage("A positive target latency is required");
+                return result;
+            }
+            return recommendThrottling(targetLatency.getLongValue().longValue(),
+                    (apply != null) && Boolean.TRUE.equals(apply.getBooleanValue()),
+                    (allowDecrease != null) && Boolean.TRUE.equals(allowDecrease.getBooleanValue()));
         } else if (LOG.isDebugEnabled()) {
             LOG.warn("Unknown Service operation " + name);
         }
         return null;
     }
 
+    /**
+     * Recommend the maximum requests for the throttling time period from the capacity of the service.
+     * Intervals whose latency is well above the lowest latency in the history were queueing, so their
+     * throughput measures the capacity rather than the demand.  The recommended rate is the capacity
+     * scaled to the utilisation at which the queueing keeps the average latency at the target,
+     * 1 - baseline/target, treating the service as a single queue.
+     * 
+     * @param targetLatency The target average processing time, in milliseconds.
+     * @param apply Whether the recommendation should be applied to the service.
+     * @param allowDecrease Whether an applied recommendation may lower the current limit.
+     * @return The recommendation, or null if the service is not available.
+     */
+    private OperationResult recommendThrottling(final long targetLatency, final boolean apply, final boolean allowDecrease) {
+        final ServiceMetrics metrics = getServiceMetrics();
+        final Service service = getService();
+        final Application application = getApplication();
+        if ((metrics == null) || (service == null) || (application == null)) {
+            return null;
+        }
+        final List<DerivedMetrics> history = getResourceContext().getParentResourceComponent().getServiceMetricsHistory(metrics);
+
+        int samples = 0;
+        double baselineLatency = Double.MAX_VALUE;
+        for (DerivedMetrics derivedMetrics: history) {
+            if (derivedMetrics.getCount() > 0) {
+                samples++;
+                baselineLatency = Math.min(baselineLatency, derivedMetrics.getAverageTime());
+            }
+        }
+        double capacity = 0;
+        double saturatedLatency = 0;
+        final double saturationLatency = SATURATION_LATENCY_FACTOR * Math.max(baselineLatency, 1);
+        for (DerivedMetrics derivedMetrics: history) {
+            if ((derivedMetrics.getCount() > 0) && (derivedMetrics.getAverageTime() >= saturationLatency)
+                    && (derivedMetrics.getInvocationRate() > capacity)) {
+                capacity = derivedMetrics.getInvocationRate();
+                saturatedLatency = derivedMetrics.getAverageTime();
+            }
+        }
+
+        final Throttling throttling = service.getThrottling();
+        final Integer currentMaxRequests = (throttling != null ? throttling.getMaxRequests() : null);
+        final OperationResult result = new OperationResult();
+        result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_SAMPLES, Integer.valueOf(samples)));
+        result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_CURRENT_MAX_REQUESTS, currentMaxRequests));
+        if (capacity <= 0) {
+            // The service never approached saturation, the history only shows the demand
+            result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_OUTCOME, OUTCOME_INSUFFICIENT_HISTORY));
+            return result;
+        }
+        result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_BASELINE_LATENCY, Double.valueOf(baselineLatency)));
+        result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_CAPACITY, Double.valueOf(capacity)));
+        result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_LATENCY, Double.valueOf(saturatedLatency)));
+        // Little's law, the requests in progress while saturated
+        result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_CONCURRENCY, Double.valueOf(capacity * saturatedLatency / 1000)));
+        if (targetLatency <= baselineLatency) {
+            result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_OUTCOME, OUTCOME_TARGET_UNATTAINABLE));
+            return result;
+        }
+
+        final double throughput = capacity * (1 - baselineLatency / targetLatency);
+        final long timePeriod = ((throttling != null) && (throttling.getTimePeriod() != null) && (throttling.getTimePeriod().longValue() > 0)
+                ? throttling.getTimePeriod().longValue() : 1000);
+        final int recommendedMaxRequests = (int) Math.max(1, Math.min(Math.floor(throughput * timePeriod / 1000), Integer.MAX_VALUE));
+        result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_THROUGHPUT, Double.valueOf(throughput)));
+        result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_RECOMMENDED_MAX_REQUESTS, Integer.valueOf(recommendedMaxRequests)));
+        if (!apply) {
+            result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_OUTCOME, OUTCOME_RECOMMENDED));
+        } else if (!allowDecrease && (currentMaxRequests != null) && (currentMaxRequests.intValue() > 0)
+                && (recommendedMaxRequests < currentMaxRequests.intValue())) {
+            result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_OUTCOME, OUTCOME_RETAINED));
+        } else {
+            final JsonNode response = getResourceContext().getParentResourceComponent().executeRaw(
+                    new UpdateThrottling(application.getName().toString(), service.getName().toString(),
+                            null, Integer.valueOf(recommendedMaxRequests)));
+            final String outcome = (response != null ? SwitchYardResourceComponent.getText(response, INVOCATION_OUTCOME) : null);
+            // An unanswered update may still have been applied
+            clearApplications();
+            if (OUTCOME_SUCCESS.equals(outcome)) {
+                result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_OUTCOME, OUTCOME_APPLIED));
+            } else {
+                final String failureDescription = (response != null
+                        ? SwitchYardResourceComponent.getText(response, INVOCATION_FAILURE_DESCRIPTION)
+                        : "No response from the server, the update may have been applied");
+                result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_OUTCOME,
+                        (response != null ? OUTCOME_FAILED : OUTCOME_UNKNOWN)));
+                result.getComplexResults().put(new PropertySimple(OPERATION_RESULT_FAILURE_DESCRIPTION, failureDescription));
+                result.setErrorMessage("Unable to apply the recommended maximum requests: " + failureDescription);
+            }
+        }
+        return result;
+    }
+
     public <T> T execute(final Operation operation, Class<T> clazz) {
         return getResourceContext().getParentResourceComponent().execute(operation, clazz);
     }
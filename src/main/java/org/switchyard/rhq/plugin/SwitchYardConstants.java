@@ -23,6 +23,10 @@ public class SwitchYardConstants {
      * The SwitchYard subsystem address.
      */
     public static final Address ADDRESS_SWITCHYARD = new Address("subsystem=switchyard");
+    /**
+     * The server root address.
+     */
+    public static final Address ADDRESS_ROOT = new Address();
 
     /**
      * The invocation outcome flag.
@@ -40,6 +44,42 @@ public class SwitchYardConstants {
      * The successful outcome value.
      */
     public static final String OUTCOME_SUCCESS = "success";
+    /**
+     * The failed outcome value.
+     */
+    public static final String OUTCOME_FAILED = "failed";
+    /**
+     * The rolled back outcome, the step succeeded but the composite failed.
+     */
+    public static final String OUTCOME_ROLLED_BACK = "rolledBack";
+    /**
+     * The unknown outcome, no response was received.
+     */
+    public static final String OUTCOME_UNKNOWN = "unknown";
+    /**
+     * The insufficient history outcome value.
+     */
+    public static final String OUTCOME_INSUFFICIENT_HISTORY = "insufficientHistory";
+    /**
+     * The recommended outcome value.
+     */
+    public static final String OUTCOME_RECOMMENDED = "recommended";
+    /**
+     * The applied outcome value.
+     */
+    public static final String OUTCOME_APPLIED = "applied";
+    /**
+     * The retained outcome value, the recommendation is below the current limit.
+     */
+    public static final String OUTCOME_RETAINED = "retained";
+    /**
+     * The target unattainable outcome value, the target is below the unloaded latency.
+     */
+    public static final String OUTCOME_TARGET_UNATTAINABLE = "targetUnattainable";
+    /**
+     * The prefix of a composite step result.
+     */
+    public static final String COMPOSITE_STEP_PREFIX = "step-";
 
 
     /**
@@ -78,6 +118,10 @@ public class SwitchYardConstants {
      * The update-throttling operation
      */
     public static final String DMR_UPDATE_THROTTLING = "update-throttling";
+    /**
+     * The read-children-resources operation
+     */
+    public static final String DMR_READ_CHILDREN_RESOURCES = "read-children-resources";
 
 
     /**
@@ -104,6 +148,14 @@ public class SwitchYardConstants {
      * The throttling parameter
      */
     public static final String PARAM_THROTTLING = "throttling";
+    /**
+     * The child-type parameter
+     */
+    public static final String PARAM_CHILD_TYPE = "child-type";
+    /**
+     * The deployment child type
+     */
+    public static final String CHILD_TYPE_DEPLOYMENT = "deployment";
 
 
     /**
@@ -122,6 +174,22 @@ public class SwitchYardConstants {
      * The setThrottling operation
      */
     public static final Object OPERATION_SET_THROTTLING = "setThrottling";
+    /**
+     * The setThrottlingPolicy operation
+     */
+    public static final String OPERATION_SET_THROTTLING_POLICY = "setThrottlingPolicy";
+    /**
+     * The topEntities operation
+     */
+    public static final String OPERATION_TOP_ENTITIES = "topEntities";
+    /**
+     * The call graph operation
+     */
+    public static final String OPERATION_CALL_GRAPH = "callGraph";
+    /**
+     * The recommend throttling operation
+     */
+    public static final String OPERATION_RECOMMEND_THROTTLING = "recommendThrottling";
     /**
      * The enabled parameter
      */
@@ -130,6 +198,226 @@ public class SwitchYardConstants {
      * The maxRequests parameter
      */
     public static final String OPERATION_PARAMETER_MAX_REQUESTS = "maxRequests";
+    /**
+     * The servicePattern parameter
+     */
+    public static final String OPERATION_PARAMETER_SERVICE_PATTERN = "servicePattern";
+    /**
+     * The limit parameter
+     */
+    public static final String OPERATION_PARAMETER_LIMIT = "limit";
+    /**
+     * The target latency parameter
+     */
+    public static final String OPERATION_PARAMETER_TARGET_LATENCY = "targetLatency";
+    /**
+     * The apply parameter
+     */
+    public static final String OPERATION_PARAMETER_APPLY = "apply";
+    /**
+     * The allow decrease parameter
+     */
+    public static final String OPERATION_PARAMETER_ALLOW_DECREASE = "allowDecrease";
+    /**
+     * The services result
+     */
+    public static final String OPERATION_RESULT_SERVICES = "services";
+    /**
+     * The service result
+     */
+    public static final String OPERATION_RESULT_SERVICE = "service";
+    /**
+     * The application result
+     */
+    public static final String OPERATION_RESULT_APPLICATION = "application";
+    /**
+     * The outcome result
+     */
+    public static final String OPERATION_RESULT_OUTCOME = "outcome";
+    /**
+     * The entities result
+     */
+    public static final String OPERATION_RESULT_ENTITIES = "entities";
+    /**
+     * The entity result
+     */
+    public static final String OPERATION_RESULT_ENTITY = "entity";
+    /**
+     * The criterion result
+     */
+    public static final String OPERATION_RESULT_CRITERION = "criterion";
+    /**
+     * The rank result
+     */
+    public static final String OPERATION_RESULT_RANK = "rank";
+    /**
+     * The type result
+     */
+    public static final String OPERATION_RESULT_TYPE = "type";
+    /**
+     * The name result
+     */
+    public static final String OPERATION_RESULT_NAME = "name";
+    /**
+     * The value result
+     */
+    public static final String OPERATION_RESULT_VALUE = "value";
+    /**
+     * The edges result
+     */
+    public static final String OPERATION_RESULT_EDGES = "edges";
+    /**
+     * The edge result
+     */
+    public static final String OPERATION_RESULT_EDGE = "edge";
+    /**
+     * The from result
+     */
+    public static final String OPERATION_RESULT_FROM = "from";
+    /**
+     * The to result
+     */
+    public static final String OPERATION_RESULT_TO = "to";
+    /**
+     * The critical path result
+     */
+    public static final String OPERATION_RESULT_CRITICAL_PATH = "criticalPath";
+    /**
+     * The hop result
+     */
+    public static final String OPERATION_RESULT_HOP = "hop";
+    /**
+     * The contributors result
+     */
+    public static final String OPERATION_RESULT_CONTRIBUTORS = "contributors";
+    /**
+     * The contributor result
+     */
+    public static final String OPERATION_RESULT_CONTRIBUTOR = "contributor";
+    /**
+     * The total count result
+     */
+    public static final String OPERATION_RESULT_TOTAL_COUNT = "totalCount";
+    /**
+     * The total time result
+     */
+    public static final String OPERATION_RESULT_TOTAL_TIME = "totalTime";
+    /**
+     * The average time result
+     */
+    public static final String OPERATION_RESULT_AVERAGE_TIME = "averageTime";
+    /**
+     * The self time result
+     */
+    public static final String OPERATION_RESULT_SELF_TIME = "selfTime";
+    /**
+     * The share result
+     */
+    public static final String OPERATION_RESULT_SHARE = "share";
+    /**
+     * The recommended max requests result
+     */
+    public static final String OPERATION_RESULT_RECOMMENDED_MAX_REQUESTS = "recommendedMaxRequests";
+    /**
+     * The current max requests result
+     */
+    public static final String OPERATION_RESULT_CURRENT_MAX_REQUESTS = "currentMaxRequests";
+    /**
+     * The samples result
+     */
+    public static final String OPERATION_RESULT_SAMPLES = "samples";
+    /**
+     * The throughput result
+     */
+    public static final String OPERATION_RESULT_THROUGHPUT = "throughput";
+    /**
+     * The latency result
+     */
+    public static final String OPERATION_RESULT_LATENCY = "latency";
+    /**
+     * The baseline latency result
+     */
+    public static final String OPERATION_RESULT_BASELINE_LATENCY = "baselineLatency";
+    /**
+     * The capacity result
+     */
+    public static final String OPERATION_RESULT_CAPACITY = "capacity";
+    /**
+     * The concurrency result
+     */
+    public static final String OPERATION_RESULT_CONCURRENCY = "concurrency";
+    /**
+     * The failure description result
+     */
+    public static final String OPERATION_RESULT_FAILURE_DESCRIPTION = "failureDescription";
+
+
+    /**
+     * The windowed metrics plugin configuration
+     */
+    public static final String CONFIG_WINDOWED_METRICS = "windowedMetrics";
+    /**
+     * The anomaly events plugin configuration
+     */
+    public static final String CONFIG_ANOMALY_EVENTS = "anomalyEvents";
+    /**
+     * The anomaly threshold plugin configuration
+     */
+    public static final String CONFIG_ANOMALY_THRESHOLD = "anomalyThreshold";
+    /**
+     * The watch deployments plugin configuration
+     */
+    public static final String CONFIG_WATCH_DEPLOYMENTS = "watchDeployments";
+    /**
+     * The full refresh interval plugin configuration
+     */
+    public static final String CONFIG_FULL_REFRESH_INTERVAL = "fullRefreshInterval";
+    /**
+     * The management timeout plugin configuration
+     */
+    public static final String CONFIG_MANAGEMENT_TIMEOUT = "managementTimeout";
+    /**
+     * The maximum concurrent calls plugin configuration
+     */
+    public static final String CONFIG_MAX_CONCURRENT_CALLS = "maxConcurrentCalls";
+    /**
+     * The maximum calls per second plugin configuration
+     */
+    public static final String CONFIG_MAX_CALLS_PER_SECOND = "maxCallsPerSecond";
+    /**
+     * The maximum metrics age plugin configuration
+     */
+    public static final String CONFIG_MAX_METRICS_AGE = "maxMetricsAge";
+
+
+    /**
+     * The latency anomaly event
+     */
+    public static final String EVENT_LATENCY_ANOMALY = "LatencyAnomaly";
+    /**
+     * The gateway state change event
+     */
+    public static final String EVENT_GATEWAY_STATE_CHANGE = "GatewayStateChange";
+    /**
+     * The started gateway state.
+     */
+    public static final String STATE_STARTED = "started";
+    /**
+     * The closed circuit state, management operations are executed.
+     */
+    public static final String CIRCUIT_CLOSED = "closed";
+    /**
+     * The open circuit state, management operations are skipped.
+     */
+    public static final String CIRCUIT_OPEN = "open";
+    /**
+     * The half open circuit state, a probe is deciding whether to resume.
+     */
+    public static final String CIRCUIT_HALF_OPEN = "halfOpen";
+    /**
+     * The stale snapshots value when every snapshot is current.
+     */
+    public static final String STALE_SNAPSHOTS_NONE = "none";
 
 
     /**
@@ -174,6 +462,106 @@ public class SwitchYardConstants {
      * The maximum processing time metric
      */
     public static final String METRIC_MAX_PROCESSING_TIME = "MaxProcessingTime";
+    /**
+     * The invocation rate metric
+     */
+    public static final String METRIC_INVOCATION_RATE = "InvocationRate";
+    /**
+     * The fault rate metric
+     */
+    public static final String METRIC_FAULT_RATE = "FaultRate";
+    /**
+     * The interval average processing time metric
+     */
+    public static final String METRIC_INTERVAL_AVERAGE_PROCESSING_TIME = "IntervalAverageProcessingTime";
+    /**
+     * The estimated concurrency metric
+     */
+    public static final String METRIC_ESTIMATED_CONCURRENCY = "EstimatedConcurrency";
+    /**
+     * The latency anomaly score metric
+     */
+    public static final String METRIC_LATENCY_ANOMALY_SCORE = "LatencyAnomalyScore";
+    /**
+     * The window minimum processing time metric
+     */
+    public static final String METRIC_WINDOW_MIN_PROCESSING_TIME = "WindowMinProcessingTime";
+    /**
+     * The window maximum processing time metric
+     */
+    public static final String METRIC_WINDOW_MAX_PROCESSING_TIME = "WindowMaxProcessingTime";
+    /**
+     * The lifetime success count metric
+     */
+    public static final String METRIC_LIFETIME_SUCCESS_COUNT = "LifetimeSuccessCount";
+    /**
+     * The lifetime fault count metric
+     */
+    public static final String METRIC_LIFETIME_FAULT_COUNT = "LifetimeFaultCount";
+    /**
+     * The lifetime total count metric
+     */
+    public static final String METRIC_LIFETIME_TOTAL_COUNT = "LifetimeTotalCount";
+    /**
+     * The lifetime total processing time metric
+     */
+    public static final String METRIC_LIFETIME_TOTAL_PROCESSING_TIME = "LifetimeTotalProcessingTime";
+    /**
+     * The prefix of the metrics aggregated over the services of an application
+     */
+    public static final String METRIC_PREFIX_SERVICE = "Service";
+    /**
+     * The prefix of the metrics aggregated over the references of an application
+     */
+    public static final String METRIC_PREFIX_REFERENCE = "Reference";
+    /**
+     * The prefix of the metrics aggregated over the component services of an application
+     */
+    public static final String METRIC_PREFIX_COMPONENT_SERVICE = "ComponentService";
+    /**
+     * The slowest service metric
+     */
+    public static final String METRIC_SLOWEST_SERVICE = "SlowestService";
+    /**
+     * The busiest service metric
+     */
+    public static final String METRIC_BUSIEST_SERVICE = "BusiestService";
+    /**
+     * The most faulty service metric
+     */
+    public static final String METRIC_MOST_FAULTY_SERVICE = "MostFaultyService";
+    /**
+     * The management timeouts metric
+     */
+    public static final String METRIC_MANAGEMENT_TIMEOUTS = "ManagementTimeouts";
+    /**
+     * The management rejections metric
+     */
+    public static final String METRIC_MANAGEMENT_REJECTIONS = "ManagementRejections";
+    /**
+     * The stale snapshots metric
+     */
+    public static final String METRIC_STALE_SNAPSHOTS = "StaleSnapshots";
+    /**
+     * The metrics age metric
+     */
+    public static final String METRIC_METRICS_AGE = "MetricsAge";
+    /**
+     * The management circuit state metric
+     */
+    public static final String METRIC_MANAGEMENT_CIRCUIT_STATE = "ManagementCircuitState";
+    /**
+     * The management latency metric
+     */
+    public static final String METRIC_MANAGEMENT_LATENCY = "ManagementLatency";
+    /**
+     * The self processing time metric
+     */
+    public static final String METRIC_SELF_PROCESSING_TIME = "SelfProcessingTime";
+    /**
+     * The downstream time share metric
+     */
+    public static final String METRIC_DOWNSTREAM_TIME_SHARE = "DownstreamTimeShare";
     /**
      * The throttling enabled metric
      */
@@ -186,6 +574,14 @@ public class SwitchYardConstants {
      * The throttling max requests metric
      */
     public static final String METRIC_MAX_REQUESTS = "MaxRequests";
+    /**
+     * The throttling utilisation metric
+     */
+    public static final String METRIC_THROTTLING_UTILISATION = "ThrottlingUtilisation";
+    /**
+     * The throttling headroom metric
+     */
+    public static final String METRIC_THROTTLING_HEADROOM = "ThrottlingHeadroom";
     /**
      * The state metric
      */
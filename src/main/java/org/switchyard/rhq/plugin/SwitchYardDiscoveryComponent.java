@@ -21,8 +21,11 @@ import static org.switchyard.rhq.plugin.SwitchYardConstants.INVOCATION_OUTCOME;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.INVOCATION_RESULT;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_SUCCESS;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -51,6 +54,27 @@ public class SwitchYardDiscoveryComponent implements ResourceDiscoveryComponent<
      * The JSON object mapper
      */
     private static final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * The time after which discovery refreshes the cached version of a server.
+     */
+    private static final long VERSION_TTL = 60*60*1000;
+
+    /**
+     * The last get-version result of each server, dropped whenever the server cannot be reached.
+     */
+    private static final Map<BaseServerComponent<?>, CachedVersion> versions =
+            Collections.synchronizedMap(new WeakHashMap<BaseServerComponent<?>, CachedVersion>());
+
+    private static class CachedVersion {
+        private final GetVersionResult result;
+        private final long timestamp;
+
+        CachedVersion(final GetVersionResult result, final long timestamp) {
+            this.result = result;
+            this.timestamp = timestamp;
+        }
+    }
     
     /**
      * Discover existing resources.
@@ -64,7 +88,7 @@ public class SwitchYardDiscoveryComponent implements ResourceDiscoveryComponent<
 
         final HashSet<DiscoveredResourceDetails> discoveredResources = new HashSet<DiscoveredResourceDetails>();
 
-        final GetVersionResult result = execute(context.getParentResourceComponent(), new GetVersion(), GetVersionResult.class);
+        final GetVersionResult result = getVersion(context.getParentResourceComponent(), VERSION_TTL);
 
         if (result != null) {
             final Configuration pluginConfig = context.getDefaultPluginConfiguration();
@@ -84,17 +108,88 @@ public class SwitchYardDiscoveryComponent implements ResourceDiscoveryComponent<
         return discoveredResources;
     }
 
+    /**
+     * The SwitchYard version of the server, from the cache if it was read within the maximum age.
+     * 
+     * @param server The server component.
+     * @param maxAge The maximum age, in milliseconds, of a cached result.
+     * @return The version, or null if the server could not be reached or has no SwitchYard subsystem.
+     */
+    public static GetVersionResult getVersion(final BaseServerComponent<?> server, final long maxAge) {
+        final GetVersionResult cachedVersion = getCachedVersion(server, maxAge);
+        if (cachedVersion != null) {
+            return cachedVersion;
+        }
+        final GetVersionResult result = execute(server, new GetVersion(), GetVersionResult.class);
+        if (result != null) {
+            cacheVersion(server, result);
+        }
+        return result;
+    }
+
+    /**
+     * The cached SwitchYard version of the server.
+     * 
+     * @param server The server component.
+     * @param maxAge The maximum age, in milliseconds, of the cached result.
+     * @return The version, or null if it was not read within the maximum age.
+     */
+    static GetVersionResult getCachedVersion(final BaseServerComponent<?> server, final long maxAge) {
+        final CachedVersion cachedVersion = versions.get(server);
+        if ((cachedVersion != null) && (System.currentTimeMillis() - cachedVersion.timestamp <= maxAge)) {
+            return cachedVersion.result;
+        }
+        return null;
+    }
+
+    /**
+     * Cache the result of a successful get-version call, failed calls drop the cached version in executeRaw.
+     * 
+     * @param server The server component.
+     * @param result The result.
+     */
+    static void cacheVersion(final BaseServerComponent<?> server, final GetVersionResult result) {
+        versions.put(server, new CachedVersion(result, System.currentTimeMillis()));
+    }
+
     public static <T> T execute(final BaseServerComponent<?> server,
             final Operation operation, final Class<T> clazz) {
+        return readResult(executeRaw(server, operation), operation, clazz);
+    }
+
+    /**
+     * Send an operation to the server.
+     * 
+     * @param server The server component.
+     * @param operation The operation.
+     * @return The response, or null if the server did not respond.
+     */
+    static JsonNode executeRaw(final BaseServerComponent<?> server, final Operation operation) {
 
         final ASConnection asConnection = server.getASConnection();
 
         final JsonNode jsonNode = asConnection.executeRaw(operation);
 
         if (jsonNode == null) {
+            // The server may be restarting, so its version must be read again
+            versions.remove(server);
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Receiver null response to operation " + operation);
             }
+        }
+        return jsonNode;
+    }
+
+    /**
+     * Read the result of an operation from its response.
+     * 
+     * @param jsonNode The response, or null if the server did not respond.
+     * @param operation The operation.
+     * @param clazz The result type.
+     * @return The result, or null if there was no response or the operation failed.
+     */
+    static <T> T readResult(final JsonNode jsonNode, final Operation operation, final Class<T> clazz) {
+        if (jsonNode == null) {
             return null;
         }
 
@@ -13,37 +13,124 @@
  */
 package org.switchyard.rhq.plugin;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.codehaus.jackson.JsonNode;
 import org.rhq.core.domain.configuration.Configuration;
+import org.rhq.core.domain.configuration.PropertyList;
+import org.rhq.core.domain.configuration.PropertyMap;
+import org.rhq.core.domain.configuration.PropertySimple;
+import org.rhq.core.domain.event.Event;
+import org.rhq.core.domain.event.EventSeverity;
 import org.rhq.core.domain.measurement.AvailabilityType;
 import org.rhq.core.domain.measurement.MeasurementDataNumeric;
+import org.rhq.core.domain.measurement.MeasurementDataTrait;
 import org.rhq.core.domain.measurement.MeasurementReport;
 import org.rhq.core.domain.measurement.MeasurementScheduleRequest;
+import org.rhq.core.pluginapi.event.EventContext;
+import org.rhq.core.pluginapi.inventory.InvalidPluginConfigurationException;
+import org.rhq.core.pluginapi.inventory.ResourceContext;
 import org.rhq.core.pluginapi.measurement.MeasurementFacet;
 import org.rhq.core.pluginapi.operation.OperationFacet;
 import org.rhq.core.pluginapi.operation.OperationResult;
 import org.rhq.modules.plugins.jbossas7.BaseServerComponent;
+import org.rhq.modules.plugins.jbossas7.json.CompositeOperation;
 import org.rhq.modules.plugins.jbossas7.json.Operation;
+import org.switchyard.rhq.plugin.model.AggregateMetrics;
 import org.switchyard.rhq.plugin.model.Application;
 import org.switchyard.rhq.plugin.model.ComponentServiceMetrics;
+import org.switchyard.rhq.plugin.model.DerivedMetrics;
+import org.switchyard.rhq.plugin.model.Gateway;
+import org.switchyard.rhq.plugin.model.GatewayMetrics;
+import org.switchyard.rhq.plugin.model.GetVersionResult;
+import org.switchyard.rhq.plugin.model.Metrics;
 import org.switchyard.rhq.plugin.model.ModelUtil;
+import org.switchyard.rhq.plugin.model.OperationMetrics;
+import org.switchyard.rhq.plugin.model.Reference;
 import org.switchyard.rhq.plugin.model.ReferenceMetrics;
+import org.switchyard.rhq.plugin.model.Service;
 import org.switchyard.rhq.plugin.model.ServiceMetrics;
 import org.switchyard.rhq.plugin.model.SwitchYardMetrics;
+import org.switchyard.rhq.plugin.operations.GetVersion;
 import org.switchyard.rhq.plugin.operations.ReadApplication;
 import org.switchyard.rhq.plugin.operations.ReadComponentServiceMetrics;
+import org.switchyard.rhq.plugin.operations.ReadDeployments;
 import org.switchyard.rhq.plugin.operations.ReadReferenceMetrics;
 import org.switchyard.rhq.plugin.operations.ReadServiceMetrics;
 import org.switchyard.rhq.plugin.operations.ReadSwitchYardMetrics;
+import org.switchyard.rhq.plugin.operations.ResetComponentServiceMetrics;
 import org.switchyard.rhq.plugin.operations.ResetMetrics;
+import org.switchyard.rhq.plugin.operations.ResetReferenceMetrics;
+import org.switchyard.rhq.plugin.operations.ResetServiceMetrics;
+import org.switchyard.rhq.plugin.operations.UpdateThrottling;
 
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CIRCUIT_CLOSED;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.COMPOSITE_STEP_PREFIX;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CONFIG_ANOMALY_EVENTS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CONFIG_ANOMALY_THRESHOLD;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CONFIG_FULL_REFRESH_INTERVAL;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CONFIG_MANAGEMENT_TIMEOUT;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CONFIG_MAX_CALLS_PER_SECOND;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CONFIG_MAX_CONCURRENT_CALLS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CONFIG_MAX_METRICS_AGE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CONFIG_WATCH_DEPLOYMENTS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CONFIG_WINDOWED_METRICS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.EVENT_GATEWAY_STATE_CHANGE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.EVENT_LATENCY_ANOMALY;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.INVOCATION_FAILURE_DESCRIPTION;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.INVOCATION_OUTCOME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.INVOCATION_RESULT;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.KEY_SWITCH_YARD;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_BUSIEST_SERVICE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_MANAGEMENT_CIRCUIT_STATE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_MANAGEMENT_LATENCY;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_MANAGEMENT_REJECTIONS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_MANAGEMENT_TIMEOUTS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_MOST_FAULTY_SERVICE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_SLOWEST_SERVICE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.METRIC_STALE_SNAPSHOTS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_PARAMETER_ENABLED;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_PARAMETER_LIMIT;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_PARAMETER_MAX_REQUESTS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_PARAMETER_SERVICE_PATTERN;
 import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESET;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_APPLICATION;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_CRITERION;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_ENTITIES;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_ENTITY;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_FAILURE_DESCRIPTION;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_NAME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_OUTCOME;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_RANK;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_SERVICE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_SERVICES;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_TYPE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_RESULT_VALUE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_SET_THROTTLING_POLICY;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OPERATION_TOP_ENTITIES;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_FAILED;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_ROLLED_BACK;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_SUCCESS;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.OUTCOME_UNKNOWN;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.STALE_SNAPSHOTS_NONE;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.STATE_STARTED;
 /**
  * SwitchYard Component
  */
@@ -55,7 +142,53 @@ public class SwitchYardResourceComponent extends BaseSwitchYardResourceComponent
     
     // TODO, make configurable
     private static long REFRESH = 30*1000;
+    /**
+     * The age after which discovery reloads the metrics to refresh the topology index.
+     */
+    private static final long TOPOLOGY_REFRESH = 10*60*1000;
+
+    /**
+     * The default number of entities reported for each ranking criterion.
+     */
+    private static final int DEFAULT_TOP_ENTITIES = 5;
+    /**
+     * The default anomaly score above which latency anomaly events are published.
+     */
+    private static final String DEFAULT_ANOMALY_THRESHOLD = "3.0";
+    /**
+     * The default interval, in seconds, after which unchanged applications are reloaded.
+     */
+    private static final String DEFAULT_FULL_REFRESH_INTERVAL = "600";
+    /**
+     * The default deadline, in seconds, of a management operation.
+     */
+    private static final String DEFAULT_MANAGEMENT_TIMEOUT = "30";
+    /**
+     * The default maximum number of management operations in progress.
+     */
+    private static final String DEFAULT_MAX_CONCURRENT_CALLS = "2";
+    /**
+     * The default maximum number of management operations started per second.
+     */
+    private static final String DEFAULT_MAX_CALLS_PER_SECOND = "5";
+    /**
+     * The default maximum age, in seconds, of reported metrics, 0 for no bound.
+     */
+    private static final String DEFAULT_MAX_METRICS_AGE = "0";
     
+    /**
+     * The client executing the management operations.
+     */
+    private volatile ManagementClient managementClient;
+    /**
+     * The lock held while refreshing a cache, callers with a snapshot do not wait for it.
+     */
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    /**
+     * The thread reloading the applications after a warm start, or null if there is none.
+     */
+    private volatile Thread refreshThread;
+
     /**
      * The current application map
      */
@@ -64,6 +197,19 @@ public class SwitchYardResourceComponent extends BaseSwitchYardResourceComponent
      * The timestamp of the last application refresh.
      */
     private AtomicLong applicationTimestamp = new AtomicLong();
+    /**
+     * The timestamp of the last application load, refreshes may keep the applications if the deployments are unchanged.
+     */
+    private volatile long applicationLoadTimestamp;
+    /**
+     * The deployment checksum at the last application load, or null if not watching deployments.
+     */
+    private volatile Long deploymentChecksum;
+    /**
+     * Whether the next refresh must reload the applications even if the deployments are unchanged,
+     * set when a plugin operation changes state which is not part of the deployment content.
+     */
+    private final AtomicBoolean reloadRequested = new AtomicBoolean();
     
     /**
      * The global metrics
@@ -100,21 +246,168 @@ public class SwitchYardResourceComponent extends BaseSwitchYardResourceComponent
      * The timestamp of the last component service metric refresh.
      */
     private AtomicLong componentServiceMetricsTimestamp = new AtomicLong();
+
+    /**
+     * The binding metrics aggregated by binding type, rebuilt whenever the service or reference metrics are loaded.
+     */
+    private AtomicReference<Map<String, AggregateMetrics>> bindingTypeMetrics = new AtomicReference<Map<String, AggregateMetrics>>();
+
+    /**
+     * The store persisting the lifetime counters.
+     */
+    private final LifetimeCounterStore lifetimeCounterStore = new LifetimeCounterStore();
+    /**
+     * The store persisting the application snapshot.
+     */
+    private final ApplicationSnapshotStore applicationSnapshotStore = new ApplicationSnapshotStore();
+    /**
+     * The tracker deriving interval metrics from the global metrics.
+     */
+    private final MetricsTracker switchYardMetricsTracker = new MetricsTracker(lifetimeCounterStore);
+    /**
+     * The tracker deriving interval metrics from the service metrics.
+     */
+    private final MetricsTracker serviceMetricsTracker = new MetricsTracker(lifetimeCounterStore);
+    /**
+     * The tracker deriving interval metrics from the reference metrics.
+     */
+    private final MetricsTracker referenceMetricsTracker = new MetricsTracker(lifetimeCounterStore);
+    /**
+     * The tracker deriving interval metrics from the component service metrics.
+     */
+    private final MetricsTracker componentServiceMetricsTracker = new MetricsTracker(lifetimeCounterStore);
+
+    /**
+     * The operation names of each entity, indexed on every metrics load.
+     */
+    private final TopologyIndex topologyIndex = new TopologyIndex();
+    /**
+     * The generation of each application, advanced on structural changes.
+     */
+    private final TopologyChangeLog topologyChangeLog = new TopologyChangeLog();
+    /**
+     * The tracker queuing gateway state changes between application snapshots.
+     */
+    private final GatewayStateTracker gatewayStateTracker = new GatewayStateTracker();
+
+    /**
+     * The retry schedules of the caches, marking their snapshots as stale after a failed load.
+     */
+    private final RefreshBackoff applicationBackoff = new RefreshBackoff("applications");
+    private final RefreshBackoff switchYardMetricsBackoff = new RefreshBackoff("metrics");
+    private final RefreshBackoff serviceMetricsBackoff = new RefreshBackoff("service metrics");
+    private final RefreshBackoff referenceMetricsBackoff = new RefreshBackoff("reference metrics");
+    private final RefreshBackoff componentServiceMetricsBackoff = new RefreshBackoff("component service metrics");
+
+    /**
+     * Whether the metrics are reset after every refresh.
+     */
+    private volatile boolean windowedMetrics;
+    /**
+     * Whether the applications are only reloaded when the deployments change.
+     */
+    private volatile boolean watchDeployments;
+    /**
+     * The interval after which the applications are reloaded even if the deployments are unchanged.
+     */
+    private volatile long fullRefreshInterval;
+    /**
+     * Whether latency anomalies are published as events.
+     */
+    private volatile boolean anomalyEvents;
+    /**
+     * The anomaly score, in standard deviations, above which an event is published.
+     */
+    private volatile double anomalyThreshold;
+    /**
+     * The age beyond which cached metrics are no longer reported, or 0 if unbounded.
+     */
+    private volatile long maxMetricsAge;
+
+    @Override
+    public void start(final ResourceContext<BaseServerComponent<?>> context)
+            throws InvalidPluginConfigurationException, Exception {
+        super.start(context);
+        final Configuration pluginConfiguration = context.getPluginConfiguration();
+        windowedMetrics = Boolean.parseBoolean(pluginConfiguration.getSimpleValue(CONFIG_WINDOWED_METRICS, "false"));
+        for (MetricsTracker tracker: new MetricsTracker[] {switchYardMetricsTracker, serviceMetricsTracker,
+                referenceMetricsTracker, componentServiceMetricsTracker}) {
+            tracker.setWindowed(windowedMetrics);
+        }
+        watchDeployments = Boolean.parseBoolean(pluginConfiguration.getSimpleValue(CONFIG_WATCH_DEPLOYMENTS, "false"));
+        fullRefreshInterval = Long.parseLong(pluginConfiguration.getSimpleValue(CONFIG_FULL_REFRESH_INTERVAL, DEFAULT_FULL_REFRESH_INTERVAL)) * 1000;
+        anomalyEvents = Boolean.parseBoolean(pluginConfiguration.getSimpleValue(CONFIG_ANOMALY_EVENTS, "false"));
+        anomalyThreshold = Double.parseDouble(pluginConfiguration.getSimpleValue(CONFIG_ANOMALY_THRESHOLD, DEFAULT_ANOMALY_THRESHOLD));
+        maxMetricsAge = Long.parseLong(pluginConfiguration.getSimpleValue(CONFIG_MAX_METRICS_AGE, DEFAULT_MAX_METRICS_AGE)) * 1000;
+        managementClient = new ManagementClient(context.getParentResourceComponent(),
+                Long.parseLong(pluginConfiguration.getSimpleValue(CONFIG_MANAGEMENT_TIMEOUT, DEFAULT_MANAGEMENT_TIMEOUT)) * 1000,
+                Integer.parseInt(pluginConfiguration.getSimpleValue(CONFIG_MAX_CONCURRENT_CALLS, DEFAULT_MAX_CONCURRENT_CALLS)),
+                Double.parseDouble(pluginConfiguration.getSimpleValue(CONFIG_MAX_CALLS_PER_SECOND, DEFAULT_MAX_CALLS_PER_SECOND)));
+        lifetimeCounterStore.open(context.getDataDirectory());
+        applicationSnapshotStore.open(context.getDataDirectory());
+        warmStart();
+    }
+
+    @Override
+    public void stop() {
+        final Thread refresh = refreshThread;
+        refreshThread = null;
+        if (refresh != null) {
+            refresh.interrupt();
+        }
+        final ManagementClient client = managementClient;
+        if (client != null) {
+            // Interrupts the calls in progress, releasing the refresh thread
+            client.shutdown();
+            if (refresh != null) {
+                try {
+                    refresh.join(client.getTimeout());
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        lifetimeCounterStore.close();
+        super.stop();
+    }
     
 
     @Override
     public AvailabilityType getAvailability() {
-        final SwitchYardMetrics metrics = getSwitchYardMetrics();
-        return (metrics == null) ? AvailabilityType.DOWN : AvailabilityType.UP;
+        final BaseServerComponent<?> server = getResourceContext().getParentResourceComponent();
+        GetVersionResult version = SwitchYardDiscoveryComponent.getCachedVersion(server, REFRESH);
+        if (version == null) {
+            version = execute(ManagementClient.Priority.AVAILABILITY, new GetVersion(), GetVersionResult.class);
+            if (version != null) {
+                SwitchYardDiscoveryComponent.cacheVersion(server, version);
+            } else if (!CIRCUIT_CLOSED.equals(managementClient.getState())) {
+                // Slow rather than unreachable, but no longer than the circuit can stay open without
+                // a response, the cached version is dropped when the server stops responding
+                version = SwitchYardDiscoveryComponent.getCachedVersion(server, ManagementClient.MAX_OPEN_INTERVAL);
+            }
+        }
+        return (version == null) ? AvailabilityType.DOWN : AvailabilityType.UP;
     }
 
     protected Log getLog() {
         return LOG;
     }
 
+    @Override
+    protected long getMaxMetricsAge() {
+        return maxMetricsAge;
+    }
+
     public <T> T execute(final Operation operation, Class<T> clazz) {
-        return SwitchYardDiscoveryComponent.execute(getResourceContext()
-                .getParentResourceComponent(), operation, clazz);
+        return managementClient.execute(ManagementClient.Priority.OPERATION, operation, clazz);
+    }
+
+    public JsonNode executeRaw(final Operation operation) {
+        return managementClient.executeRaw(ManagementClient.Priority.OPERATION, operation);
+    }
+
+    private <T> T execute(final ManagementClient.Priority priority, final Operation operation, Class<T> clazz) {
+        return managementClient.execute(priority, operation, clazz);
     }
     
     public Map<String, Application> getApplications() {
@@ -133,6 +426,13 @@ public class SwitchYardResourceComponent extends BaseSwitchYardResourceComponent
         return getCachedServiceMetrics();
     }
 
+    /**
+     * The recent interval metrics of a service, oldest first.
+     */
+    public List<DerivedMetrics> getServiceMetricsHistory(final ServiceMetrics serviceMetrics) {
+        return serviceMetricsTracker.getHistory(ModelUtil.createMetricKey("service", serviceMetrics.getApplication(), serviceMetrics.getName()));
+    }
+
     public Map<String, Map<String, ReferenceMetrics>> getReferenceMetrics() {
         return getCachedReferenceMetrics();
     }
@@ -141,10 +441,207 @@ public class SwitchYardResourceComponent extends BaseSwitchYardResourceComponent
         return getCachedComponentServiceMetrics();
     }
 
+    /**
+     * The metrics of the service and reference bindings across all applications, grouped by binding type.
+     * 
+     * @return The aggregate metrics, keyed by binding type.
+     */
+    public Map<String, AggregateMetrics> getBindingTypeMetrics() {
+        getCachedServiceMetrics();
+        getCachedReferenceMetrics();
+        final Map<String, AggregateMetrics> bindingTypeMetricsMap = bindingTypeMetrics.get();
+        // No metrics have been loaded yet
+        return (bindingTypeMetricsMap != null ? bindingTypeMetricsMap : Collections.<String, AggregateMetrics>emptyMap());
+    }
+
+    /**
+     * The binding types of the service and reference bindings across all applications, from the application model.
+     * 
+     * @return The binding types.
+     */
+    public Set<String> getBindingTypes() {
+        final Set<String> bindingTypes = new TreeSet<String>();
+        for (Application application: getApplications().values()) {
+            for (Service service: application.getServices().values()) {
+                addBindingTypes(bindingTypes, service.getGateways());
+            }
+            for (Reference reference: application.getReferences().values()) {
+                addBindingTypes(bindingTypes, reference.getGateways());
+            }
+        }
+        return bindingTypes;
+    }
+
+    private static void addBindingTypes(final Set<String> bindingTypes, final Map<String, Gateway> gateways) {
+        if (gateways != null) {
+            for (Gateway gateway: gateways.values()) {
+                if (gateway.getType() != null) {
+                    bindingTypes.add(gateway.getType());
+                }
+            }
+        }
+    }
+
+    /**
+     * Aggregate the metrics of the service and reference bindings from the current snapshots, called with
+     * the refresh lock held after the service or reference metrics have been loaded.
+     */
+    private void aggregateBindingTypeMetrics() {
+        final Map<String, Application> applicationMap = applications.get();
+        if (applicationMap == null) {
+            return;
+        }
+        final Map<String, Map<String, ServiceMetrics>> serviceMetricsMap = serviceMetrics.get();
+        final Map<String, Map<String, ReferenceMetrics>> referenceMetricsMap = referenceMetrics.get();
+        final Map<String, AggregateMetrics> bindingTypeMetricsMap = new TreeMap<String, AggregateMetrics>();
+        for (Application application: applicationMap.values()) {
+            final String applicationName = application.getName().toString();
+            final Map<String, ServiceMetrics> applicationServiceMetrics = (serviceMetricsMap != null ? serviceMetricsMap.get(applicationName) : null);
+            for (Service service: application.getServices().values()) {
+                final ServiceMetrics metrics = (applicationServiceMetrics != null ? applicationServiceMetrics.get(service.getName().toString()) : null);
+                addBindingTypeMetrics(bindingTypeMetricsMap, service.getGateways(), (metrics != null ? metrics.getGatewayMetrics() : null));
+            }
+            final Map<String, ReferenceMetrics> applicationReferenceMetrics = (referenceMetricsMap != null ? referenceMetricsMap.get(applicationName) : null);
+            for (Reference reference: application.getReferences().values()) {
+                final ReferenceMetrics metrics = (applicationReferenceMetrics != null ? applicationReferenceMetrics.get(reference.getName().toString()) : null);
+                addBindingTypeMetrics(bindingTypeMetricsMap, reference.getGateways(), (metrics != null ? metrics.getGatewayMetrics() : null));
+            }
+        }
+        bindingTypeMetrics.set(bindingTypeMetricsMap);
+    }
+
+    private static void addBindingTypeMetrics(final Map<String, AggregateMetrics> bindingTypeMetrics,
+            final Map<String, Gateway> gateways, final Map<String, GatewayMetrics> gatewayMetrics) {
+        if (gateways == null) {
+            return;
+        }
+        for (Map.Entry<String, Gateway> entry: gateways.entrySet()) {
+            final String type = entry.getValue().getType();
+            if (type != null) {
+                AggregateMetrics aggregateMetrics = bindingTypeMetrics.get(type);
+                if (aggregateMetrics == null) {
+                    aggregateMetrics = new AggregateMetrics();
+                    bindingTypeMetrics.put(type, aggregateMetrics);
+                }
+                final GatewayMetrics metrics = (gatewayMetrics != null ? gatewayMetrics.get(entry.getKey()) : null);
+                if (metrics != null) {
+                    aggregateMetrics.add(metrics);
+                }
+            }
+        }
+    }
+
+    /**
+     * The caches whose last load failed, serving their previous snapshot.
+     * 
+     * @return The names of the stale caches, empty if every snapshot is current.
+     */
+    public List<String> getStaleSnapshots() {
+        final List<String> staleSnapshots = new ArrayList<String>();
+        for (RefreshBackoff backoff: new RefreshBackoff[] {applicationBackoff, switchYardMetricsBackoff,
+                serviceMetricsBackoff, referenceMetricsBackoff, componentServiceMetricsBackoff}) {
+            if (backoff.isStale()) {
+                staleSnapshots.add(backoff.getName());
+            }
+        }
+        return staleSnapshots;
+    }
+
+    /**
+     * Reload the applications at the next refresh, even if the deployment checksum is unchanged.
+     */
     public void clearApplications() {
+        reloadRequested.set(true);
         applicationTimestamp.set(0);
     }
 
+    /**
+     * The operation names of an entity, from the topology index.  The metrics are only
+     * read for the index if it has not been refreshed by a metrics load for a long time.
+     * 
+     * @param type The entity type.
+     * @param application The application name.
+     * @param name The entity name.
+     * @return The operation names.
+     */
+    public Set<String> getOperationNames(final String type, final String application, final String name) {
+        refreshTopologyIndex(type);
+        return topologyIndex.getOperationNames(type, application, name);
+    }
+
+    /**
+     * The generation of the operation names of an entity, from the topology index.
+     */
+    public long getOperationGeneration(final String type, final String application, final String name) {
+        refreshTopologyIndex(type);
+        return topologyIndex.getGeneration(type, application, name);
+    }
+
+    /**
+     * Read the metrics of the type if they have not refreshed the index recently, as the operation
+     * names are only reported with the metrics.  This only happens when none of the metrics of the
+     * type are being collected, otherwise the collection keeps the index current.  The metrics are
+     * only indexed, not tracked or cached, so discovery never resets the windowed metrics.
+     */
+    private void refreshTopologyIndex(final String type) {
+        if (!topologyIndex.isExpired(type, TOPOLOGY_REFRESH)) {
+            return;
+        }
+        final Map<String, Set<String>> operationIndex = new HashMap<String, Set<String>>();
+        if (TopologyIndex.TYPE_SERVICE.equals(type)) {
+            final ServiceMetrics[] loaded = execute(ManagementClient.Priority.DISCOVERY, new ReadServiceMetrics(), ServiceMetrics[].class);
+            if (loaded == null) {
+                return;
+            }
+            for (ServiceMetrics metrics: loaded) {
+                TopologyIndex.addOperations(operationIndex, metrics.getApplication(), metrics.getName(), metrics.getOperationMetrics());
+            }
+        } else if (TopologyIndex.TYPE_REFERENCE.equals(type)) {
+            final ReferenceMetrics[] loaded = execute(ManagementClient.Priority.DISCOVERY, new ReadReferenceMetrics(), ReferenceMetrics[].class);
+            if (loaded == null) {
+                return;
+            }
+            for (ReferenceMetrics metrics: loaded) {
+                TopologyIndex.addOperations(operationIndex, metrics.getApplication(), metrics.getName(), metrics.getOperationMetrics());
+            }
+        } else if (TopologyIndex.TYPE_COMPONENT_SERVICE.equals(type)) {
+            final ComponentServiceMetrics[] loaded = execute(ManagementClient.Priority.DISCOVERY, new ReadComponentServiceMetrics(), ComponentServiceMetrics[].class);
+            if (loaded == null) {
+                return;
+            }
+            for (ComponentServiceMetrics metrics: loaded) {
+                TopologyIndex.addOperations(operationIndex, metrics.getApplication(), metrics.getName(), metrics.getOperationMetrics());
+            }
+        } else {
+            return;
+        }
+        topologyIndex.update(type, operationIndex);
+    }
+
+    /**
+     * The generation of the set of applications, refreshing the applications if due.
+     */
+    public long getApplicationsGeneration() {
+        getApplicationMap();
+        return topologyChangeLog.getApplicationsGeneration();
+    }
+
+    /**
+     * The generation of the last structural change to any application, refreshing the applications if due.
+     */
+    public long getTopologyGeneration() {
+        getApplicationMap();
+        return topologyChangeLog.getTopologyGeneration();
+    }
+
+    /**
+     * The generation of an application, refreshing the applications if due.
+     */
+    public long getApplicationGeneration(final String application) {
+        getApplicationMap();
+        return topologyChangeLog.getGeneration(application);
+    }
+
     public void clearServiceMetrics() {
         serviceMetricsTimestamp.set(0);
     }
@@ -160,31 +657,157 @@ public class SwitchYardResourceComponent extends BaseSwitchYardResourceComponent
     private Map<String, Application> getApplicationMap() {
         Map<String, Application> applicationMap = applications.get();
         long now = System.currentTimeMillis();
-        if (now - applicationTimestamp.get() > REFRESH) {
-            synchronized(this) {
-                if (now - applicationTimestamp.get() > REFRESH) {
-                    applicationMap = ModelUtil.createNamedResourceMap(loadApplications());
-                    applications.set(applicationMap);
-                    applicationTimestamp.set(System.currentTimeMillis());
+        final long refresh = managementClient.getRefreshInterval(REFRESH);
+        if ((now - applicationTimestamp.get() > refresh) && lockRefresh(applicationMap != null)) {
+            try {
+                if (now - applicationTimestamp.get() > refresh) {
+                    final Long checksum = (watchDeployments ? loadDeploymentChecksum() : null);
+                    final boolean reload = reloadRequested.getAndSet(false);
+                    if ((checksum != null) && checksum.equals(deploymentChecksum) && !reload
+                            && (now - applicationLoadTimestamp < fullRefreshInterval)) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Deployments unchanged, keeping the SwitchYard applications");
+                        }
+                        applicationBackoff.succeeded();
+                        applicationTimestamp.set(System.currentTimeMillis());
+                    } else if (!refreshApplications(checksum, refresh) && reload) {
+                        reloadRequested.set(true);
+                    }
                 }
+            } finally {
+                refreshLock.unlock();
             }
             applicationMap = applications.get();
         }
-        return applicationMap;
+        // No snapshot has been loaded yet
+        return (applicationMap != null ? applicationMap : Collections.<String, Application>emptyMap());
+    }
+
+    /**
+     * Reload the applications, keeping the current snapshot and retrying on a short backoff if the load fails.
+     * Must be called while holding the refresh lock.
+     * 
+     * @param checksum The deployment checksum read before the load, or null if not watching deployments.
+     * @param refresh The refresh interval.
+     * @return true if the applications were loaded.
+     */
+    private boolean refreshApplications(final Long checksum, final long refresh) {
+        if (reloadApplications(checksum)) {
+            applicationBackoff.succeeded();
+            applicationTimestamp.set(System.currentTimeMillis());
+            return true;
+        } else {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Unable to load the SwitchYard applications, keeping the previous snapshot");
+            }
+            applicationTimestamp.set(applicationBackoff.failed(refresh));
+            return false;
+        }
+    }
+
+    /**
+     * Load the applications, replacing the current snapshot and persisting it if its structure changed.
+     * Must be called while holding the refresh lock.
+     * 
+     * @param checksum The deployment checksum read before the load, or null if not watching deployments.
+     * @return true if the applications were loaded.
+     */
+    private boolean reloadApplications(final Long checksum) {
+        final Application[] loaded = loadApplications();
+        if (loaded == null) {
+            return false;
+        }
+        final Map<String, Application> applicationMap = ModelUtil.createNamedResourceMap(loaded);
+        final long previousGeneration = topologyChangeLog.getTopologyGeneration();
+        publishGatewayStateChanges(gatewayStateTracker.track(applicationMap, System.currentTimeMillis()));
+        topologyChangeLog.update(applicationMap);
+        applications.set(applicationMap);
+        deploymentChecksum = checksum;
+        applicationLoadTimestamp = System.currentTimeMillis();
+        if ((topologyChangeLog.getTopologyGeneration() != previousGeneration) && !applicationMap.isEmpty()) {
+            applicationSnapshotStore.save(applicationMap.values());
+        }
+        return true;
+    }
+
+    /**
+     * Answer from the persisted application snapshot, if there is one, while the applications are
+     * reloaded in the background so the first callers after a restart are not blocked.
+     */
+    private void warmStart() {
+        final Application[] snapshot = applicationSnapshotStore.load();
+        if (snapshot == null) {
+            return;
+        }
+        final Map<String, Application> applicationMap = ModelUtil.createNamedResourceMap(snapshot);
+        // The gateway states are not tracked, the snapshot may be hours old and would raise spurious events
+        topologyChangeLog.update(applicationMap);
+        applications.set(applicationMap);
+        applicationTimestamp.set(System.currentTimeMillis());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Loaded " + snapshot.length + " SwitchYard applications from the snapshot");
+        }
+
+        final Thread refresh = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    refreshLock.lockInterruptibly();
+                } catch (final InterruptedException ie) {
+                    // Stopped before the refresh started
+                    return;
+                }
+                try {
+                    refreshApplications(watchDeployments ? loadDeploymentChecksum() : null,
+                            managementClient.getRefreshInterval(REFRESH));
+                } finally {
+                    refreshLock.unlock();
+                    refreshThread = null;
+                }
+            }
+        }, "SwitchYard application refresh");
+        refresh.setDaemon(true);
+        refreshThread = refresh;
+        refresh.start();
+    }
+
+    /**
+     * Acquire the refresh lock.  A caller with a snapshot to fall back on gives up at once if
+     * another thread is refreshing, other callers wait up to the management timeout.
+     * 
+     * @param hasSnapshot Whether the caller has a snapshot to return.
+     * @return true if the lock was acquired.
+     */
+    private boolean lockRefresh(final boolean hasSnapshot) {
+        if (hasSnapshot) {
+            return refreshLock.tryLock();
+        }
+        try {
+            return refreshLock.tryLock(managementClient.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     private SwitchYardMetrics getCachedSwitchYardMetrics() {
         SwitchYardMetrics metrics = switchYardMetrics.get();
         long now = System.currentTimeMillis();
-        if (now - switchYardMetricsTimestamp.get() > REFRESH) {
-            synchronized(this) {
-                if (now - switchYardMetricsTimestamp.get() > REFRESH) {
+        final long refresh = managementClient.getRefreshInterval(REFRESH);
+        if ((now - switchYardMetricsTimestamp.get() > refresh) && lockRefresh(metrics != null)) {
+            try {
+                if (now - switchYardMetricsTimestamp.get() > refresh) {
                     metrics = loadSwitchYardMetrics();
-                    if (metrics != null) {
+                    if (metrics == null) {
+                        switchYardMetricsTimestamp.set(switchYardMetricsBackoff.failed(refresh));
+                    } else {
+                        switchYardMetricsTracker.track(Collections.singletonMap(KEY_SWITCH_YARD, metrics));
+                        switchYardMetricsBackoff.succeeded();
                         switchYardMetrics.set(metrics);
                         switchYardMetricsTimestamp.set(System.currentTimeMillis());
                     }
                 }
+            } finally {
+                refreshLock.unlock();
             }
             metrics = switchYardMetrics.get();
         }
@@ -194,86 +817,281 @@ public class SwitchYardResourceComponent extends BaseSwitchYardResourceComponent
     private Map<String, Map<String, ServiceMetrics>> getCachedServiceMetrics() {
         Map<String, Map<String, ServiceMetrics>> serviceMetricsMap = serviceMetrics.get();
         long now = System.currentTimeMillis();
-        if (now - serviceMetricsTimestamp.get() > REFRESH) {
-            synchronized(this) {
-                if (now - serviceMetricsTimestamp.get() > REFRESH) {
-                    serviceMetricsMap = ModelUtil.createApplicationNamedMetricMap(loadServiceMetrics());
-                    serviceMetrics.set(serviceMetricsMap);
-                    serviceMetricsTimestamp.set(System.currentTimeMillis());
+        final long refresh = managementClient.getRefreshInterval(REFRESH);
+        if ((now - serviceMetricsTimestamp.get() > refresh) && lockRefresh(serviceMetricsMap != null)) {
+            try {
+                if (now - serviceMetricsTimestamp.get() > refresh) {
+                    final ServiceMetrics[] loaded = loadServiceMetrics();
+                    if (loaded == null) {
+                        serviceMetricsTimestamp.set(serviceMetricsBackoff.failed(refresh));
+                    } else {
+                        serviceMetricsMap = ModelUtil.createApplicationNamedMetricMap(loaded);
+                        final Map<String, Metrics> flattenedMetrics = ModelUtil.flattenServiceMetrics(serviceMetricsMap);
+                        serviceMetricsTracker.track(flattenedMetrics);
+                        final Map<String, Set<String>> operationIndex = new HashMap<String, Set<String>>();
+                        for (Map<String, ServiceMetrics> applicationMetrics: serviceMetricsMap.values()) {
+                            for (ServiceMetrics metrics: applicationMetrics.values()) {
+                                TopologyIndex.addOperations(operationIndex, metrics.getApplication(), metrics.getName(), metrics.getOperationMetrics());
+                            }
+                        }
+                        topologyIndex.update(TopologyIndex.TYPE_SERVICE, operationIndex);
+                        if (anomalyEvents) {
+                            publishLatencyAnomalies(serviceMetricsMap);
+                        }
+                        if (windowedMetrics) {
+                            final CompositeOperation reset = new CompositeOperation();
+                            for (Map<String, ServiceMetrics> applicationMetrics: serviceMetricsMap.values()) {
+                                for (ServiceMetrics metrics: applicationMetrics.values()) {
+                                    reset.addStep(new ResetServiceMetrics(metrics.getApplication(), metrics.getName()));
+                                }
+                            }
+                            resetWindow(serviceMetricsTracker, flattenedMetrics.keySet(), reset);
+                        }
+                        serviceMetricsBackoff.succeeded();
+                        serviceMetrics.set(serviceMetricsMap);
+                        serviceMetricsTimestamp.set(System.currentTimeMillis());
+                        aggregateBindingTypeMetrics();
+                    }
                 }
+            } finally {
+                refreshLock.unlock();
             }
             serviceMetricsMap = serviceMetrics.get();
         }
-        return serviceMetricsMap;
+        // No snapshot has been loaded yet
+        return (serviceMetricsMap != null ? serviceMetricsMap : Collections.<String, Map<String, ServiceMetrics>>emptyMap());
     }
 
     private Map<String, Map<String, ReferenceMetrics>> getCachedReferenceMetrics() {
         Map<String, Map<String, ReferenceMetrics>> referenceMetricsMap = referenceMetrics.get();
         long now = System.currentTimeMillis();
-        if (now - referenceMetricsTimestamp.get() > REFRESH) {
-            synchronized(this) {
-                if (now - referenceMetricsTimestamp.get() > REFRESH) {
-                    referenceMetricsMap = ModelUtil.createApplicationNamedMetricMap(loadReferenceMetrics());
-                    referenceMetrics.set(referenceMetricsMap);
-                    referenceMetricsTimestamp.set(System.currentTimeMillis());
+        final long refresh = managementClient.getRefreshInterval(REFRESH);
+        if ((now - referenceMetricsTimestamp.get() > refresh) && lockRefresh(referenceMetricsMap != null)) {
+            try {
+                if (now - referenceMetricsTimestamp.get() > refresh) {
+                    final ReferenceMetrics[] loaded = loadReferenceMetrics();
+                    if (loaded == null) {
+                        referenceMetricsTimestamp.set(referenceMetricsBackoff.failed(refresh));
+                    } else {
+                        referenceMetricsMap = ModelUtil.createApplicationNamedMetricMap(loaded);
+                        final Map<String, Metrics> flattenedMetrics = ModelUtil.flattenReferenceMetrics(referenceMetricsMap);
+                        referenceMetricsTracker.track(flattenedMetrics);
+                        final Map<String, Set<String>> operationIndex = new HashMap<String, Set<String>>();
+                        for (Map<String, ReferenceMetrics> applicationMetrics: referenceMetricsMap.values()) {
+                            for (ReferenceMetrics metrics: applicationMetrics.values()) {
+                                TopologyIndex.addOperations(operationIndex, metrics.getApplication(), metrics.getName(), metrics.getOperationMetrics());
+                            }
+                        }
+                        topologyIndex.update(TopologyIndex.TYPE_REFERENCE, operationIndex);
+                        if (windowedMetrics) {
+                            final CompositeOperation reset = new CompositeOperation();
+                            for (Map<String, ReferenceMetrics> applicationMetrics: referenceMetricsMap.values()) {
+                                for (ReferenceMetrics metrics: applicationMetrics.values()) {
+                                    reset.addStep(new ResetReferenceMetrics(metrics.getApplication(), metrics.getName()));
+                                }
+                            }
+                            resetWindow(referenceMetricsTracker, flattenedMetrics.keySet(), reset);
+                        }
+                        referenceMetricsBackoff.succeeded();
+                        referenceMetrics.set(referenceMetricsMap);
+                        referenceMetricsTimestamp.set(System.currentTimeMillis());
+                        aggregateBindingTypeMetrics();
+                    }
                 }
+            } finally {
+                refreshLock.unlock();
             }
             referenceMetricsMap = referenceMetrics.get();
         }
-        return referenceMetricsMap;
+        // No snapshot has been loaded yet
+        return (referenceMetricsMap != null ? referenceMetricsMap : Collections.<String, Map<String, ReferenceMetrics>>emptyMap());
     }
 
     private Map<String, Map<String, ComponentServiceMetrics>> getCachedComponentServiceMetrics() {
         Map<String, Map<String, ComponentServiceMetrics>> componentServiceMetricsMap = componentServiceMetrics.get();
         long now = System.currentTimeMillis();
-        if (now - componentServiceMetricsTimestamp.get() > REFRESH) {
-            synchronized(this) {
-                if (now - componentServiceMetricsTimestamp.get() > REFRESH) {
-                    componentServiceMetricsMap = ModelUtil.createApplicationNamedMetricMap(loadComponentServiceMetrics());
-                    componentServiceMetrics.set(componentServiceMetricsMap);
-                    componentServiceMetricsTimestamp.set(System.currentTimeMillis());
+        final long refresh = managementClient.getRefreshInterval(REFRESH);
+        if ((now - componentServiceMetricsTimestamp.get() > refresh) && lockRefresh(componentServiceMetricsMap != null)) {
+            try {
+                if (now - componentServiceMetricsTimestamp.get() > refresh) {
+                    final ComponentServiceMetrics[] loaded = loadComponentServiceMetrics();
+                    if (loaded == null) {
+                        componentServiceMetricsTimestamp.set(componentServiceMetricsBackoff.failed(refresh));
+                    } else {
+                        componentServiceMetricsMap = ModelUtil.createApplicationNamedMetricMap(loaded);
+                        final Map<String, Metrics> flattenedMetrics = ModelUtil.flattenComponentServiceMetrics(componentServiceMetricsMap);
+                        componentServiceMetricsTracker.track(flattenedMetrics);
+                        final Map<String, Set<String>> operationIndex = new HashMap<String, Set<String>>();
+                        for (Map<String, ComponentServiceMetrics> applicationMetrics: componentServiceMetricsMap.values()) {
+                            for (ComponentServiceMetrics metrics: applicationMetrics.values()) {
+                                TopologyIndex.addOperations(operationIndex, metrics.getApplication(), metrics.getName(), metrics.getOperationMetrics());
+                            }
+                        }
+                        topologyIndex.update(TopologyIndex.TYPE_COMPONENT_SERVICE, operationIndex);
+                        if (windowedMetrics) {
+                            final CompositeOperation reset = new CompositeOperation();
+                            for (Map<String, ComponentServiceMetrics> applicationMetrics: componentServiceMetricsMap.values()) {
+                                for (ComponentServiceMetrics metrics: applicationMetrics.values()) {
+                                    reset.addStep(new ResetComponentServiceMetrics(metrics.getApplication(), metrics.getName()));
+                                }
+                            }
+                            resetWindow(componentServiceMetricsTracker, flattenedMetrics.keySet(), reset);
+                        }
+                        componentServiceMetricsBackoff.succeeded();
+                        componentServiceMetrics.set(componentServiceMetricsMap);
+                        componentServiceMetricsTimestamp.set(System.currentTimeMillis());
+                    }
                 }
+            } finally {
+                refreshLock.unlock();
             }
             componentServiceMetricsMap = componentServiceMetrics.get();
         }
-        return componentServiceMetricsMap;
+        // No snapshot has been loaded yet
+        return (componentServiceMetricsMap != null ? componentServiceMetricsMap : Collections.<String, Map<String, ComponentServiceMetrics>>emptyMap());
+    }
+    
+    /**
+     * Publish an event for every gateway state change seen by an application load.
+     */
+    private void publishGatewayStateChanges(final List<GatewayStateTracker.StateChange> stateChanges) {
+        final EventContext eventContext = getResourceContext().getEventContext();
+        if (eventContext == null) {
+            return;
+        }
+        for (GatewayStateTracker.StateChange stateChange: stateChanges) {
+            final EventSeverity severity = (STATE_STARTED.equalsIgnoreCase(stateChange.getState()) ? EventSeverity.INFO : EventSeverity.WARN);
+            eventContext.publishEvent(new Event(EVENT_GATEWAY_STATE_CHANGE, stateChange.getGatewayKey(), stateChange.getTimestamp(), severity,
+                    "Gateway state changed from " + stateChange.getPreviousState() + " to " + stateChange.getState()));
+        }
+    }
+
+    /**
+     * Publish an event for every service and service operation whose interval latency
+     * deviates from its moving average by more than the anomaly threshold.
+     */
+    private void publishLatencyAnomalies(final Map<String, Map<String, ServiceMetrics>> serviceMetricsMap) {
+        final EventContext eventContext = getResourceContext().getEventContext();
+        if (eventContext == null) {
+            return;
+        }
+        for (Map<String, ServiceMetrics> applicationMetrics: serviceMetricsMap.values()) {
+            for (ServiceMetrics metrics: applicationMetrics.values()) {
+                final String source = ModelUtil.createMetricKey(metrics.getApplication(), metrics.getName());
+                publishLatencyAnomaly(eventContext, source, metrics);
+                for (OperationMetrics operationMetrics: metrics.getOperationMetrics().values()) {
+                    publishLatencyAnomaly(eventContext, ModelUtil.createMetricKey(source, operationMetrics.getName()), operationMetrics);
+                }
+            }
+        }
+    }
+
+    private void publishLatencyAnomaly(final EventContext eventContext, final String source, final Metrics metrics) {
+        final DerivedMetrics derivedMetrics = metrics.getDerivedMetrics();
+        final Double score = (derivedMetrics != null ? derivedMetrics.getLatencyAnomalyScore() : null);
+        if ((score != null) && (Math.abs(score.doubleValue()) > anomalyThreshold)) {
+            final String detail = "Interval average processing time " + derivedMetrics.getAverageTime()
+                    + "ms deviates by " + score + " standard deviations";
+            eventContext.publishEvent(new Event(EVENT_LATENCY_ANOMALY, source, metrics.getTimestamp(),
+                    (score.doubleValue() > 0 ? EventSeverity.WARN : EventSeverity.INFO), detail));
+        }
+    }
+
+    /**
+     * Reset the metrics which have just been read, so the next refresh covers a single window.
+     * The tracker keeps the lifetime counters across the resets.
+     */
+    private void resetWindow(final MetricsTracker tracker, final Collection<String> keys, final CompositeOperation reset) {
+        if (!keys.isEmpty()) {
+            if (execute(ManagementClient.Priority.MEASUREMENT, reset, JsonNode.class) != null) {
+                tracker.resetBaseline(keys);
+            } else if (LOG.isDebugEnabled()) {
+                LOG.debug("Unable to reset the metrics window");
+            }
+        }
     }
     
+    /**
+     * A checksum of the deployments of the server, cheap to read compared to the applications.
+     * It only covers the deployment content, so runtime changes such as throttling and gateway
+     * state do not change it.
+     * 
+     * @return The checksum, or null if the deployments could not be read.
+     */
+    private Long loadDeploymentChecksum() {
+        final JsonNode deployments = execute(ManagementClient.Priority.DISCOVERY, new ReadDeployments(), JsonNode.class);
+        return (deployments == null ? null : Long.valueOf(ModelUtil.hash(deployments.toString())));
+    }
+
     private Application[] loadApplications() {
-        final Application[] applications = execute(new ReadApplication(), Application[].class);
-        return (applications == null ? new Application[0] : applications);
+        return execute(ManagementClient.Priority.DISCOVERY, new ReadApplication(), Application[].class);
     }
     
     private SwitchYardMetrics loadSwitchYardMetrics() {
-        final SwitchYardMetrics[] metrics = execute(new ReadSwitchYardMetrics(), SwitchYardMetrics[].class);
+        final SwitchYardMetrics[] metrics = execute(ManagementClient.Priority.MEASUREMENT, new ReadSwitchYardMetrics(), SwitchYardMetrics[].class);
         return (metrics == null ? null : metrics[0]);
     }
     
     private ServiceMetrics[] loadServiceMetrics() {
-        final ServiceMetrics[] serviceMetrics = execute(new ReadServiceMetrics(), ServiceMetrics[].class);
-        return (serviceMetrics == null ? new ServiceMetrics[0] : serviceMetrics);
+        return execute(ManagementClient.Priority.MEASUREMENT, new ReadServiceMetrics(), ServiceMetrics[].class);
     }
     
     private ReferenceMetrics[] loadReferenceMetrics() {
-        final ReferenceMetrics[] referenceMetrics = execute(new ReadReferenceMetrics(), ReferenceMetrics[].class);
-        return (referenceMetrics == null ? new ReferenceMetrics[0] : referenceMetrics);
+        return execute(ManagementClient.Priority.MEASUREMENT, new ReadReferenceMetrics(), ReferenceMetrics[].class);
     }
     
     private ComponentServiceMetrics[] loadComponentServiceMetrics() {
-        final ComponentServiceMetrics[] componentServiceMetrics = execute(new ReadComponentServiceMetrics(), ComponentServiceMetrics[].class);
-        return (componentServiceMetrics == null ? new ComponentServiceMetrics[0] : componentServiceMetrics);
+        return execute(ManagementClient.Priority.MEASUREMENT, new ReadComponentServiceMetrics(), ComponentServiceMetrics[].class);
     }
 
     @Override
     public void getValues(final MeasurementReport report, final Set<MeasurementScheduleRequest> requests) throws Exception {
         final SwitchYardMetrics metrics = getSwitchYardMetrics();
-        if (metrics != null) {
-            for (MeasurementScheduleRequest request: requests) {
+        MetricsRanking serviceRanking = null;
+        for (MeasurementScheduleRequest request: requests) {
+            if (METRIC_MANAGEMENT_TIMEOUTS.equals(request.getName())) {
+                report.addData(new MeasurementDataNumeric(request, Double.valueOf(managementClient.getTimeouts())));
+            } else if (METRIC_MANAGEMENT_REJECTIONS.equals(request.getName())) {
+                report.addData(new MeasurementDataNumeric(request, Double.valueOf(managementClient.getRejections())));
+            } else if (METRIC_STALE_SNAPSHOTS.equals(request.getName())) {
+                final List<String> staleSnapshots = getStaleSnapshots();
+                report.addData(new MeasurementDataTrait(request, staleSnapshots.isEmpty() ? STALE_SNAPSHOTS_NONE : staleSnapshots.toString()));
+            } else if (METRIC_MANAGEMENT_CIRCUIT_STATE.equals(request.getName())) {
+                report.addData(new MeasurementDataTrait(request, managementClient.getState()));
+            } else if (METRIC_MANAGEMENT_LATENCY.equals(request.getName())) {
+                final Double latency = managementClient.getAverageLatency();
+                if (latency != null) {
+                    report.addData(new MeasurementDataNumeric(request, latency));
+                }
+            } else if (metrics != null) {
                 final MeasurementDataNumeric measurementData = getCommonMetric(request, metrics);
                 if (measurementData != null) {
                     report.addData(measurementData);
-                } else if (LOG.isDebugEnabled()) {
-                    LOG.debug("Unable to collect SwitchYard measurement " + request.getName());
+                } else {
+                    final String name = request.getName();
+                    final MetricsRanking.Criterion criterion;
+                    if (METRIC_SLOWEST_SERVICE.equals(name)) {
+                        criterion = MetricsRanking.Criterion.AVERAGE_TIME;
+                    } else if (METRIC_BUSIEST_SERVICE.equals(name)) {
+                        criterion = MetricsRanking.Criterion.THROUGHPUT;
+                    } else if (METRIC_MOST_FAULTY_SERVICE.equals(name)) {
+                        criterion = MetricsRanking.Criterion.FAULT_RATIO;
+                    } else {
+                        criterion = null;
+                    }
+                    if (criterion != null) {
+                        if (serviceRanking == null) {
+                            serviceRanking = new MetricsRanking();
+                            serviceRanking.addServiceMetrics(getServiceMetrics(), false);
+                        }
+                        final List<MetricsRanking.Entry> top = serviceRanking.getTop(criterion, 1);
+                        if (!top.isEmpty()) {
+                            final MetricsRanking.Entry entry = top.get(0);
+                            report.addData(new MeasurementDataTrait(request, entry.getApplication() + "/" + entry.getName()));
+                        }
+                    } else if (LOG.isDebugEnabled()) {
+                        LOG.debug("Unable to collect SwitchYard measurement " + request.getName());
+                    }
                 }
             }
         }
@@ -286,9 +1104,131 @@ public class SwitchYardResourceComponent extends BaseSwitchYardResourceComponent
             clearServiceMetrics();
             clearReferenceMetrics();
             clearComponentServiceMetrics();
+        } else if (OPERATION_SET_THROTTLING_POLICY.equals(name)) {
+            final PropertySimple servicePattern = (PropertySimple) parameters.get(OPERATION_PARAMETER_SERVICE_PATTERN);
+            final PropertySimple enabled = (PropertySimple) parameters.get(OPERATION_PARAMETER_ENABLED);
+            final PropertySimple maxRequests = (PropertySimple) parameters.get(OPERATION_PARAMETER_MAX_REQUESTS);
+            final Pattern pattern;
+            try {
+                pattern = Pattern.compile(servicePattern.getStringValue());
+            } catch (final PatternSyntaxException pse) {
+                final OperationResult result = new OperationResult();
+                result.setErrorMessage("Invalid service pattern: " + pse.getMessage());
+                return result;
+            }
+            return updateThrottlingPolicy(pattern,
+                    (enabled != null ? enabled.getBooleanValue() : null),
+                    (maxRequests != null ? maxRequests.getIntegerValue() : null));
+        } else if (OPERATION_TOP_ENTITIES.equals(name)) {
+            final PropertySimple limit = (PropertySimple) parameters.get(OPERATION_PARAMETER_LIMIT);
+            return getTopEntities((limit != null) && (limit.getIntegerValue() != null) ? limit.getIntegerValue().intValue() : DEFAULT_TOP_ENTITIES);
         } else if (LOG.isDebugEnabled()) {
             LOG.warn("Unknown SwitchYard operation " + name);
         }
         return null;
     }
+
+    /**
+     * Rank the services, references, component services and their operations by each criterion.
+     * 
+     * @param limit The number of entities to report for each criterion.
+     * @return The ranked entities.
+     */
+    private OperationResult getTopEntities(final int limit) {
+        final MetricsRanking ranking = new MetricsRanking();
+        ranking.addServiceMetrics(getServiceMetrics(), true);
+        ranking.addReferenceMetrics(getReferenceMetrics(), true);
+        ranking.addComponentServiceMetrics(getComponentServiceMetrics(), true);
+
+        final PropertyList entities = new PropertyList(OPERATION_RESULT_ENTITIES);
+        for (MetricsRanking.Criterion criterion: MetricsRanking.Criterion.values()) {
+            int rank = 0;
+            for (MetricsRanking.Entry entry: ranking.getTop(criterion, limit)) {
+                entities.add(new PropertyMap(OPERATION_RESULT_ENTITY,
+                        new PropertySimple(OPERATION_RESULT_CRITERION, criterion.getName()),
+                        new PropertySimple(OPERATION_RESULT_RANK, Integer.valueOf(++rank)),
+                        new PropertySimple(OPERATION_RESULT_TYPE, entry.getType()),
+                        new PropertySimple(OPERATION_RESULT_APPLICATION, entry.getApplication()),
+                        new PropertySimple(OPERATION_RESULT_NAME, entry.getName()),
+                        new PropertySimple(OPERATION_RESULT_VALUE, Double.valueOf(entry.getValue()))));
+            }
+        }
+        final OperationResult result = new OperationResult();
+        result.getComplexResults().put(entities);
+        return result;
+    }
+
+    /**
+     * Apply the throttling configuration to every service whose name matches the pattern.
+     * All updates are sent as a single composite request, the applications are refreshed once.
+     * 
+     * @param servicePattern The pattern matched against the qualified or local service name.
+     * @param enabled Whether throttling should be enabled, or null if unchanged.
+     * @param maxRequests The maximum requests in the throttling time period, or null if unchanged.
+     * @return The per-service outcome.
+     */
+    private OperationResult updateThrottlingPolicy(final Pattern servicePattern, final Boolean enabled, final Integer maxRequests) {
+        final List<String[]> matches = new ArrayList<String[]>();
+        final CompositeOperation composite = new CompositeOperation();
+        for (Application application: getApplications().values()) {
+            final String applicationName = application.getName().toString();
+            for (Service service: application.getServices().values()) {
+                final String serviceName = service.getName().toString();
+                if (servicePattern.matcher(serviceName).matches()
+                        || servicePattern.matcher(service.getName().getLocalPart()).matches()) {
+                    composite.addStep(new UpdateThrottling(applicationName, serviceName, enabled, maxRequests));
+                    matches.add(new String[] {applicationName, serviceName});
+                }
+            }
+        }
+
+        final OperationResult result = new OperationResult();
+        final PropertyList services = new PropertyList(OPERATION_RESULT_SERVICES);
+        if (!matches.isEmpty()) {
+            // The composite is applied atomically, a failed step rolls back every update
+            final JsonNode response = managementClient.executeRaw(ManagementClient.Priority.OPERATION, composite);
+            final JsonNode compositeOutcome = (response != null ? response.get(INVOCATION_OUTCOME) : null);
+            final boolean success = (compositeOutcome != null) && OUTCOME_SUCCESS.equals(compositeOutcome.asText());
+            final JsonNode steps = (response != null ? response.get(INVOCATION_RESULT) : null);
+            for (int count = 0; count < matches.size(); count++) {
+                final String[] match = matches.get(count);
+                final JsonNode step = (steps != null ? steps.get(COMPOSITE_STEP_PREFIX + (count+1)) : null);
+                final String outcome;
+                final String failureDescription;
+                if (response == null) {
+                    // Abandoned or skipped, the server may still have applied the update
+                    outcome = OUTCOME_UNKNOWN;
+                    failureDescription = "No response from the server, the update may have been applied";
+                } else if (step == null) {
+                    outcome = (success ? OUTCOME_SUCCESS : OUTCOME_FAILED);
+                    failureDescription = getText(response, INVOCATION_FAILURE_DESCRIPTION);
+                } else {
+                    final String stepOutcome = getText(step, INVOCATION_OUTCOME);
+                    outcome = (!success && OUTCOME_SUCCESS.equals(stepOutcome) ? OUTCOME_ROLLED_BACK
+                            : (stepOutcome != null ? stepOutcome : OUTCOME_FAILED));
+                    failureDescription = getText(step, INVOCATION_FAILURE_DESCRIPTION);
+                }
+                services.add(new PropertyMap(OPERATION_RESULT_SERVICE,
+                        new PropertySimple(OPERATION_RESULT_APPLICATION, match[0]),
+                        new PropertySimple(OPERATION_RESULT_SERVICE, match[1]),
+                        new PropertySimple(OPERATION_RESULT_OUTCOME, outcome),
+                        new PropertySimple(OPERATION_RESULT_FAILURE_DESCRIPTION, failureDescription)));
+            }
+            // Failed, rolled back or unanswered steps may still have changed the throttling
+            clearApplications();
+            if (!success) {
+                final String failureDescription = (response != null ? getText(response, INVOCATION_FAILURE_DESCRIPTION) : null);
+                result.setErrorMessage("Throttling update " + (response == null ? "outcome unknown" : "failed")
+                        + (failureDescription != null ? ": " + failureDescription : ""));
+            }
+        }
+        result.getComplexResults().put(services);
+        return result;
+    }
+
+    static String getText(final JsonNode node, final String field) {
+        final JsonNode value = node.get(field);
+        // Composite failure descriptions are objects keyed by the failed step
+        return (value == null ? null : (value.isValueNode() ? value.asText() : value.toString()));
+    }
 }
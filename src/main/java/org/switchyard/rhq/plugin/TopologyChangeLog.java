@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.switchyard.rhq.plugin.model.Application;
+import org.switchyard.rhq.plugin.model.ComponentService;
+import org.switchyard.rhq.plugin.model.Gateway;
+import org.switchyard.rhq.plugin.model.ModelUtil;
+import org.switchyard.rhq.plugin.model.Reference;
+import org.switchyard.rhq.plugin.model.Service;
+
+/**
+ * Records a generation for every application, advanced whenever the structure of the application
+ * changes between snapshots, so discovery can reuse the resources found for unchanged subtrees.
+ */
+public class TopologyChangeLog {
+    /**
+     * The generation returned for unknown applications, never matched by a cached discovery.
+     */
+    public static final long UNKNOWN_GENERATION = -1;
+
+    /**
+     * The source of new generations, shared by all applications so a redeployed application never reuses a generation.
+     */
+    private long counter;
+    /**
+     * The generation of the set of application names.
+     */
+    private long applicationsGeneration = UNKNOWN_GENERATION;
+    /**
+     * The generation of the last change to any application.
+     */
+    private long topologyGeneration = UNKNOWN_GENERATION;
+    /**
+     * The structural fingerprint of each application.
+     */
+    private final Map<String, Long> fingerprints = new HashMap<String, Long>();
+    /**
+     * The generation of each application.
+     */
+    private final Map<String, Long> generations = new HashMap<String, Long>();
+
+    /**
+     * Compare the applications with the previous snapshot, advancing the generation of every
+     * application whose structure changed.
+     * 
+     * @param applications The current applications, keyed by name.
+     */
+    public synchronized void update(final Map<String, Application> applications) {
+        if (!applications.keySet().equals(fingerprints.keySet()) || (applicationsGeneration == UNKNOWN_GENERATION)) {
+            applicationsGeneration = ++counter;
+            topologyGeneration = applicationsGeneration;
+        }
+        fingerprints.keySet().retainAll(applications.keySet());
+        generations.keySet().retainAll(applications.keySet());
+        for (Map.Entry<String, Application> entry: applications.entrySet()) {
+            final Long fingerprint = Long.valueOf(fingerprint(entry.getValue()));
+            if (!fingerprint.equals(fingerprints.get(entry.getKey()))) {
+                fingerprints.put(entry.getKey(), fingerprint);
+                generations.put(entry.getKey(), Long.valueOf(++counter));
+                topologyGeneration = counter;
+            }
+        }
+    }
+
+    /**
+     * The generation of the set of application names.
+     */
+    public synchronized long getApplicationsGeneration() {
+        return applicationsGeneration;
+    }
+
+    /**
+     * The generation of the last change to any application.
+     */
+    public synchronized long getTopologyGeneration() {
+        return topologyGeneration;
+    }
+
+    /**
+     * The generation of an application, or UNKNOWN_GENERATION if it is not known.
+     */
+    public synchronized long getGeneration(final String application) {
+        final Long generation = generations.get(application);
+        return (generation != null ? generation.longValue() : UNKNOWN_GENERATION);
+    }
+
+    /**
+     * The hash of the names and types making up the resources discovered beneath an application.
+     * The model maps are sorted by name, so the fingerprint does not depend on the server's ordering.
+     */
+    static long fingerprint(final Application application) {
+        final StringBuilder builder = new StringBuilder();
+        for (Service service: application.getServices().values()) {
+            builder.append("service:").append(service.getName()).append('>').append(service.getPromotedService()).append(';');
+            appendGateways(builder, service.getGateways());
+        }
+        for (Reference reference: application.getReferences().values()) {
+            builder.append("reference:").append(reference.getName()).append('>').append(reference.getPromotedReference()).append(';');
+            appendGateways(builder, reference.getGateways());
+        }
+        for (ComponentService componentService: application.getComponentServices().values()) {
+            builder.append("componentService:").append(componentService.getName()).append(';');
+            for (String componentReference: componentService.getReferences().keySet()) {
+                builder.append("componentReference:").append(componentReference).append(';');
+            }
+        }
+        return ModelUtil.hash(builder.toString());
+    }
+
+    private static void appendGateways(final StringBuilder builder, final Map<String, Gateway> gateways) {
+        for (Gateway gateway: gateways.values()) {
+            builder.append("gateway:").append(gateway.getName()).append('=').append(gateway.getType()).append(';');
+        }
+    }
+}
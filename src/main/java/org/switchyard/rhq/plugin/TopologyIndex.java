@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.switchyard.rhq.plugin.model.ModelUtil;
+import org.switchyard.rhq.plugin.model.OperationMetrics;
+
+/**
+ * An index of the operation names of each service, reference and component service, rebuilt
+ * whenever their metrics are loaded so discovery does not have to fetch the metrics itself.
+ * <p/>
+ * The application model only carries the interface name of each entity, the operation names
+ * are only reported by the show-metrics operations, so the index cannot be built when the
+ * applications are reloaded.
+ */
+public class TopologyIndex {
+    /**
+     * The service entity type.
+     */
+    public static final String TYPE_SERVICE = "service";
+    /**
+     * The reference entity type.
+     */
+    public static final String TYPE_REFERENCE = "reference";
+    /**
+     * The component service entity type.
+     */
+    public static final String TYPE_COMPONENT_SERVICE = "componentService";
+
+    /**
+     * The operation names of each entity, keyed by entity type then by application and entity name.
+     */
+    private final Map<String, Map<String, Set<String>>> operationNames = new HashMap<String, Map<String, Set<String>>>();
+    /**
+     * The time each entity type was last indexed.
+     */
+    private final Map<String, Long> timestamps = new HashMap<String, Long>();
+    /**
+     * The generation of the operation names of each entity, keyed by entity type then by application and entity name.
+     */
+    private final Map<String, Map<String, Long>> generations = new HashMap<String, Map<String, Long>>();
+    /**
+     * The source of new generations.
+     */
+    private long counter;
+
+    /**
+     * Add the operation names of an entity to an index under construction.
+     */
+    public static void addOperations(final Map<String, Set<String>> index, final String application,
+            final String name, final Map<String, OperationMetrics> operationMetrics) {
+        final Set<String> names = new TreeSet<String>();
+        if (operationMetrics != null) {
+            names.addAll(operationMetrics.keySet());
+        }
+        index.put(ModelUtil.createMetricKey(application, name), names);
+    }
+
+    /**
+     * Replace the index of an entity type.
+     * 
+     * @param type The entity type.
+     * @param index The operation names of each entity of the type.
+     */
+    public synchronized void update(final String type, final Map<String, Set<String>> index) {
+        final Map<String, Set<String>> previousIndex = operationNames.get(type);
+        final Map<String, Long> previousGenerations = generations.get(type);
+        final Map<String, Long> currentGenerations = new HashMap<String, Long>();
+        for (Map.Entry<String, Set<String>> entry: index.entrySet()) {
+            final Set<String> previousNames = (previousIndex != null ? previousIndex.get(entry.getKey()) : null);
+            if (entry.getValue().equals(previousNames)) {
+                currentGenerations.put(entry.getKey(), previousGenerations.get(entry.getKey()));
+            } else {
+                currentGenerations.put(entry.getKey(), Long.valueOf(++counter));
+            }
+        }
+        generations.put(type, currentGenerations);
+        operationNames.put(type, index);
+        timestamps.put(type, Long.valueOf(System.currentTimeMillis()));
+    }
+
+    /**
+     * Whether the entity type has not been indexed within the time to live.
+     */
+    public synchronized boolean isExpired(final String type, final long timeToLive) {
+        final Long timestamp = timestamps.get(type);
+        return (timestamp == null) || (System.currentTimeMillis() - timestamp.longValue() > timeToLive);
+    }
+
+    /**
+     * The operation names of an entity.
+     * 
+     * @return The operation names, empty if the entity is not indexed.
+     */
+    public synchronized Set<String> getOperationNames(final String type, final String application, final String name) {
+        final Map<String, Set<String>> index = operationNames.get(type);
+        final Set<String> names = (index != null ? index.get(ModelUtil.createMetricKey(application, name)) : null);
+        return (names != null ? names : Collections.<String>emptySet());
+    }
+
+    /**
+     * The generation of the operation names of an entity, advanced whenever they change.
+     * 
+     * @return The generation, or TopologyChangeLog.UNKNOWN_GENERATION if the entity is not indexed.
+     */
+    public synchronized long getGeneration(final String type, final String application, final String name) {
+        final Map<String, Long> index = generations.get(type);
+        final Long generation = (index != null ? index.get(ModelUtil.createMetricKey(application, name)) : null);
+        return (generation != null ? generation.longValue() : TopologyChangeLog.UNKNOWN_GENERATION);
+    }
+}
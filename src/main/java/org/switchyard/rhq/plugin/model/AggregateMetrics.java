@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin.model;
+
+
+/**
+ * Metrics aggregated over a number of entities.
+ */
+public class AggregateMetrics {
+    private long successCount;
+    private long faultCount;
+    private long totalCount;
+    private long totalTime;
+    private long maxTime;
+    private double invocationRate;
+    private double faultRate;
+    private boolean rated;
+    private long timestamp;
+
+    public void add(final Metrics metrics) {
+        timestamp = (timestamp == 0 ? metrics.getTimestamp() : Math.min(timestamp, metrics.getTimestamp()));
+        final DerivedMetrics derivedMetrics = metrics.getDerivedMetrics();
+        if ((derivedMetrics != null) && derivedMetrics.isWindowed()) {
+            // The server counters only cover the last window, aggregate the cumulative counters instead
+            successCount += derivedMetrics.getLifetimeSuccessCount();
+            faultCount += derivedMetrics.getLifetimeFaultCount();
+            totalCount += derivedMetrics.getLifetimeCount();
+            totalTime += derivedMetrics.getLifetimeTotalTime();
+            maxTime = Math.max(maxTime, derivedMetrics.getLifetimeMaxTime());
+        } else {
+            successCount += metrics.getSuccessCount();
+            faultCount += metrics.getFaultCount();
+            totalCount += metrics.getTotalCount();
+            totalTime += metrics.getTotalTime();
+            maxTime = Math.max(maxTime, metrics.getMaxTime());
+        }
+        if ((derivedMetrics != null) && derivedMetrics.hasInterval()) {
+            invocationRate += derivedMetrics.getInvocationRate();
+            faultRate += derivedMetrics.getFaultRate();
+            rated = true;
+        }
+    }
+
+    public void addAll(final Iterable<? extends Metrics> metrics) {
+        for (Metrics entry: metrics) {
+            add(entry);
+        }
+    }
+
+    public long getSuccessCount() {
+        return successCount;
+    }
+
+    public long getFaultCount() {
+        return faultCount;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * The time at which the oldest of the aggregated metrics were retrieved, or 0 if none were aggregated.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * The average processing time, weighted by the invocation count of each entity.
+     */
+    public double getAverageTime() {
+        return (totalCount > 0 ? (double)totalTime / totalCount : 0);
+    }
+
+    /**
+     * Whether any of the entities has an interval from which rates could be derived.
+     */
+    public boolean isRated() {
+        return rated;
+    }
+
+    public double getInvocationRate() {
+        return invocationRate;
+    }
+
+    public double getFaultRate() {
+        return faultRate;
+    }
+}
@@ -63,4 +63,22 @@ public class ComponentServiceMetrics extends Metrics implements ApplicationNamed
     public Map<String, ComponentReferenceMetrics> getComponentReferenceMetrics() {
         return componentReferenceMetrics;
     }
+
+    /**
+     * The processing time spent waiting on the component references.
+     */
+    public long getReferenceTotalTime() {
+        long referenceTotalTime = 0;
+        for (ComponentReferenceMetrics metrics: componentReferenceMetrics.values()) {
+            referenceTotalTime += metrics.getTotalTime();
+        }
+        return referenceTotalTime;
+    }
+
+    /**
+     * The processing time spent within the component itself.
+     */
+    public long getSelfTotalTime() {
+        return Math.max(getTotalTime() - getReferenceTotalTime(), 0);
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin.model;
+
+
+/**
+ * Metrics derived from the difference between two successive metric snapshots,
+ * together with the lifetime counters accumulated by the plugin.
+ */
+public class DerivedMetrics {
+    private final long interval;
+    private final long successCount;
+    private final long faultCount;
+    private final long count;
+    private final long totalTime;
+    private final boolean windowed;
+    private final long windowMinTime;
+    private final long windowMaxTime;
+    private final long lifetimeSuccessCount;
+    private final long lifetimeFaultCount;
+    private final long lifetimeCount;
+    private final long lifetimeTotalTime;
+    private final long lifetimeMinTime;
+    private final long lifetimeMaxTime;
+    private final Double latencyAnomalyScore;
+
+    public DerivedMetrics(final long interval, final long successCount, final long faultCount,
+            final long count, final long totalTime, final boolean windowed,
+            final long windowMinTime, final long windowMaxTime,
+            final long lifetimeSuccessCount, final long lifetimeFaultCount,
+            final long lifetimeCount, final long lifetimeTotalTime,
+            final long lifetimeMinTime, final long lifetimeMaxTime, final Double latencyAnomalyScore) {
+        this.interval = interval;
+        this.successCount = successCount;
+        this.faultCount = faultCount;
+        this.count = count;
+        this.totalTime = totalTime;
+        this.windowed = windowed;
+        this.windowMinTime = windowMinTime;
+        this.windowMaxTime = windowMaxTime;
+        this.lifetimeSuccessCount = lifetimeSuccessCount;
+        this.lifetimeFaultCount = lifetimeFaultCount;
+        this.lifetimeCount = lifetimeCount;
+        this.lifetimeTotalTime = lifetimeTotalTime;
+        this.lifetimeMinTime = lifetimeMinTime;
+        this.lifetimeMaxTime = lifetimeMaxTime;
+        this.latencyAnomalyScore = latencyAnomalyScore;
+    }
+
+    /**
+     * The length of the interval, in milliseconds, or 0 if there was no previous snapshot.
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    public boolean hasInterval() {
+        return (interval > 0);
+    }
+
+    /**
+     * The number of successful invocations within the interval.
+     */
+    public long getSuccessCount() {
+        return successCount;
+    }
+
+    /**
+     * The number of faults within the interval.
+     */
+    public long getFaultCount() {
+        return faultCount;
+    }
+
+    /**
+     * The number of invocations within the interval.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The processing time of all invocations within the interval.
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * Whether the server counters are reset after every read, in which case the raw counters
+     * and the minimum and maximum processing times only cover the reads since the last reset,
+     * and the lifetime counters stand in for the raw counters.
+     */
+    public boolean isWindowed() {
+        return windowed;
+    }
+
+    public long getWindowMinTime() {
+        return windowMinTime;
+    }
+
+    public long getWindowMaxTime() {
+        return windowMaxTime;
+    }
+
+    public long getLifetimeSuccessCount() {
+        return lifetimeSuccessCount;
+    }
+
+    public long getLifetimeFaultCount() {
+        return lifetimeFaultCount;
+    }
+
+    public long getLifetimeCount() {
+        return lifetimeCount;
+    }
+
+    public long getLifetimeTotalTime() {
+        return lifetimeTotalTime;
+    }
+
+    /**
+     * The average processing time of all invocations accumulated by the plugin.
+     */
+    public double getLifetimeAverageTime() {
+        return (lifetimeCount > 0 ? (double)lifetimeTotalTime / lifetimeCount : 0);
+    }
+
+    /**
+     * The minimum processing time seen since the plugin started, across windows.
+     */
+    public long getLifetimeMinTime() {
+        return lifetimeMinTime;
+    }
+
+    /**
+     * The maximum processing time seen since the plugin started, across windows.
+     */
+    public long getLifetimeMaxTime() {
+        return lifetimeMaxTime;
+    }
+
+    /**
+     * The number of standard deviations by which the interval average processing time deviates
+     * from its moving average, or null until enough intervals have been seen.
+     */
+    public Double getLatencyAnomalyScore() {
+        return latencyAnomalyScore;
+    }
+
+    /**
+     * The number of invocations per second.
+     */
+    public double getInvocationRate() {
+        return (hasInterval() ? (count * 1000.0) / interval : 0);
+    }
+
+    /**
+     * The number of faults per second.
+     */
+    public double getFaultRate() {
+        return (hasInterval() ? (faultCount * 1000.0) / interval : 0);
+    }
+
+    /**
+     * The average processing time of the invocations within the interval.
+     */
+    public double getAverageTime() {
+        return (count > 0 ? (double)totalTime / count : 0);
+    }
+
+    /**
+     * The average number of invocations in progress during the interval, by Little's law
+     * the throughput multiplied by the average processing time.
+     */
+    public double getEstimatedConcurrency() {
+        return (hasInterval() ? (double)totalTime / interval : 0);
+    }
+}
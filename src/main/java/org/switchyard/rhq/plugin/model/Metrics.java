@@ -25,6 +25,8 @@ public class Metrics {
     private final long minTime;
     private final long maxTime;
     private final long totalTime;
+    private final long timestamp = System.currentTimeMillis();
+    private DerivedMetrics derivedMetrics;
 
     public Metrics(final int successCount, final int faultCount, final int totalCount,
             final double averageTime, final long minTime, final long maxTime,
@@ -65,4 +67,22 @@ public class Metrics {
     public long getTotalTime() {
         return totalTime;
     }
+
+    /**
+     * The time at which these metrics were retrieved.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * The metrics derived from the previous snapshot, or null if no previous snapshot exists.
+     */
+    public DerivedMetrics getDerivedMetrics() {
+        return derivedMetrics;
+    }
+
+    public void setDerivedMetrics(final DerivedMetrics derivedMetrics) {
+        this.derivedMetrics = derivedMetrics;
+    }
 }
@@ -13,11 +13,23 @@
  */
 package org.switchyard.rhq.plugin.model;
 
+import java.nio.charset.Charset;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 
 public class ModelUtil {
+    /**
+     * The separator used when creating metric keys.
+     */
+    private static final char METRIC_KEY_SEPARATOR = '|';
+    /**
+     * The key encoding.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+
     public static <T extends NamedResource> Map<String, T> createNamedResourceMap(final T[] resources) {
         if ((resources != null) && (resources.length > 0)) {
             final Map<String, T> resourceMap = new TreeMap<String, T>();
@@ -64,4 +76,73 @@ public class ModelUtil {
             return map;
         }
     }
+
+    public static String createMetricKey(final String... names) {
+        final StringBuilder key = new StringBuilder();
+        for (String name: names) {
+            if (key.length() > 0) {
+                key.append(METRIC_KEY_SEPARATOR);
+            }
+            key.append(name);
+        }
+        return key.toString();
+    }
+
+    /**
+     * The 64-bit FNV-1a hash of the key.
+     */
+    public static long hash(final String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte value: key.getBytes(UTF8)) {
+            hash ^= (value & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public static Map<String, Metrics> flattenServiceMetrics(final Map<String, Map<String, ServiceMetrics>> serviceMetrics) {
+        final Map<String, Metrics> metricMap = new HashMap<String, Metrics>();
+        for (Map<String, ServiceMetrics> applicationMetrics: serviceMetrics.values()) {
+            for (ServiceMetrics metrics: applicationMetrics.values()) {
+                final String key = createMetricKey("service", metrics.getApplication(), metrics.getName());
+                metricMap.put(key, metrics);
+                addMetrics(metricMap, key, "operation", metrics.getOperationMetrics());
+                addMetrics(metricMap, key, "gateway", metrics.getGatewayMetrics());
+            }
+        }
+        return metricMap;
+    }
+
+    public static Map<String, Metrics> flattenReferenceMetrics(final Map<String, Map<String, ReferenceMetrics>> referenceMetrics) {
+        final Map<String, Metrics> metricMap = new HashMap<String, Metrics>();
+        for (Map<String, ReferenceMetrics> applicationMetrics: referenceMetrics.values()) {
+            for (ReferenceMetrics metrics: applicationMetrics.values()) {
+                final String key = createMetricKey("reference", metrics.getApplication(), metrics.getName());
+                metricMap.put(key, metrics);
+                addMetrics(metricMap, key, "operation", metrics.getOperationMetrics());
+                addMetrics(metricMap, key, "gateway", metrics.getGatewayMetrics());
+            }
+        }
+        return metricMap;
+    }
+
+    public static Map<String, Metrics> flattenComponentServiceMetrics(final Map<String, Map<String, ComponentServiceMetrics>> componentServiceMetrics) {
+        final Map<String, Metrics> metricMap = new HashMap<String, Metrics>();
+        for (Map<String, ComponentServiceMetrics> applicationMetrics: componentServiceMetrics.values()) {
+            for (ComponentServiceMetrics metrics: applicationMetrics.values()) {
+                final String key = createMetricKey("componentService", metrics.getApplication(), metrics.getName());
+                metricMap.put(key, metrics);
+                addMetrics(metricMap, key, "operation", metrics.getOperationMetrics());
+                addMetrics(metricMap, key, "reference", metrics.getComponentReferenceMetrics());
+            }
+        }
+        return metricMap;
+    }
+
+    private static void addMetrics(final Map<String, Metrics> metricMap, final String parentKey,
+            final String type, final Map<String, ? extends Metrics> metrics) {
+        for (Map.Entry<String, ? extends Metrics> entry: metrics.entrySet()) {
+            metricMap.put(createMetricKey(parentKey, type, entry.getKey()), entry.getValue());
+        }
+    }
 }
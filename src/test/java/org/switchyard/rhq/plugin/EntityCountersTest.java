@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.switchyard.rhq.plugin.model.DerivedMetrics;
+import org.switchyard.rhq.plugin.model.Metrics;
+
+public class EntityCountersTest {
+    @Test
+    public void testCounterDelta() {
+        assertEquals(5, EntityCounters.counterDelta(5, 10));
+        assertEquals(0, EntityCounters.counterDelta(7, 7));
+    }
+
+    @Test
+    public void testCounterDeltaWrapsAt32Bits() {
+        assertEquals(3, EntityCounters.counterDelta(Integer.MAX_VALUE - 1, Integer.MIN_VALUE + 1));
+        assertEquals(3, EntityCounters.counterDelta(-1, 2));
+        assertEquals(0xFFFFFFFFL, EntityCounters.counterDelta(1, 0));
+    }
+
+    @Test
+    public void testIsResetWhenTotalTimeDecreases() {
+        assertTrue(EntityCounters.isReset(10, 5000, metrics(20, 4000)));
+    }
+
+    @Test
+    public void testIsResetWhenCountMovesBackwards() {
+        assertTrue(EntityCounters.isReset(100, 5000, metrics(50, 6000)));
+    }
+
+    @Test
+    public void testWrapIsNotReset() {
+        assertFalse(EntityCounters.isReset(Integer.MAX_VALUE, 5000, metrics(Integer.MIN_VALUE + 9, 6000)));
+        assertFalse(EntityCounters.isReset(-1, 5000, metrics(9, 6000)));
+        assertFalse(EntityCounters.isReset(10, 5000, metrics(10, 5000)));
+    }
+
+    @Test
+    public void testUpdateAccumulatesAcrossWrap() {
+        final EntityCounters counters = new EntityCounters();
+        counters.update(metrics(Integer.MAX_VALUE - 1, 1000), false);
+        final DerivedMetrics derivedMetrics = counters.update(metrics(Integer.MIN_VALUE + 1, 1300), false);
+
+        assertEquals(3, derivedMetrics.getCount());
+        assertEquals(300, derivedMetrics.getTotalTime());
+        assertEquals((long) Integer.MAX_VALUE + 2, derivedMetrics.getLifetimeCount());
+        assertEquals(1300, derivedMetrics.getLifetimeTotalTime());
+    }
+
+    @Test
+    public void testUpdateCountsFromZeroAfterReset() {
+        final EntityCounters counters = new EntityCounters();
+        counters.update(metrics(100, 5000), false);
+        final DerivedMetrics derivedMetrics = counters.update(metrics(4, 200), false);
+
+        assertEquals(4, derivedMetrics.getCount());
+        assertEquals(200, derivedMetrics.getTotalTime());
+        assertEquals(104, derivedMetrics.getLifetimeCount());
+        assertEquals(5200, derivedMetrics.getLifetimeTotalTime());
+    }
+
+    private static Metrics metrics(final int count, final long totalTime) {
+        return new Metrics(count, 0, count, 0, 1, 10, totalTime);
+    }
+}
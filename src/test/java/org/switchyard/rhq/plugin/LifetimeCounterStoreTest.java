@@ -0,0 +1,208 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.rhq.plugin.model.ModelUtil;
+
+public class LifetimeCounterStoreTest {
+    private static final String FILE_NAME = "lifetime-counters.dat";
+    private static final int MAGIC = 0x53594C43;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 80;
+    private static final int VERSION_1_RECORD_SIZE = 64;
+    private static final long DAY = 24*60*60*1000;
+
+    private File directory;
+    private LifetimeCounterStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("lifetime-counters", "");
+        directory.delete();
+        directory.mkdirs();
+        store = new LifetimeCounterStore();
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file: files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testRestoreAfterReopen() {
+        store.open(directory);
+        final EntityCounters counters = new EntityCounters();
+        store.restore("service", counters);
+        assertEquals(0, counters.slot);
+        populate(counters);
+        store.save(counters);
+        store.close();
+
+        store = new LifetimeCounterStore();
+        store.open(directory);
+        final EntityCounters restored = new EntityCounters();
+        store.restore("service", restored);
+        assertEquals(0, restored.slot);
+        assertEquals(1, restored.successCount);
+        assertEquals(2, restored.faultCount);
+        assertEquals(3, restored.count);
+        assertEquals(4, restored.totalTime);
+        assertEquals(5, restored.lifetimeSuccessCount);
+        assertEquals(6, restored.lifetimeFaultCount);
+        assertEquals(7, restored.lifetimeCount);
+        assertEquals(8, restored.lifetimeTotalTime);
+        assertEquals(9, restored.lifetimeMinTime);
+        assertEquals(10, restored.lifetimeMaxTime);
+
+        final EntityCounters other = new EntityCounters();
+        store.restore("reference", other);
+        assertEquals(1, other.slot);
+        assertEquals(0, other.lifetimeCount);
+    }
+
+    @Test
+    public void testRecordFormat() throws IOException {
+        store.open(directory);
+        final EntityCounters counters = new EntityCounters();
+        store.restore("service", counters);
+        populate(counters);
+        store.save(counters);
+        store.close();
+
+        final ByteBuffer contents = read();
+        assertEquals(MAGIC, contents.getInt(0));
+        assertEquals(2, contents.getInt(4));
+        assertEquals(1, contents.getInt(8));
+        assertEquals(ModelUtil.hash("service"), contents.getLong(HEADER_SIZE));
+        assertEquals(1, contents.getInt(HEADER_SIZE + 8));
+        assertEquals(2, contents.getInt(HEADER_SIZE + 12));
+        assertEquals(3, contents.getInt(HEADER_SIZE + 16));
+        assertEquals(today(), contents.getInt(HEADER_SIZE + 20));
+        assertEquals(4, contents.getLong(HEADER_SIZE + 24));
+        assertEquals(5, contents.getLong(HEADER_SIZE + 32));
+        assertEquals(6, contents.getLong(HEADER_SIZE + 40));
+        assertEquals(7, contents.getLong(HEADER_SIZE + 48));
+        assertEquals(8, contents.getLong(HEADER_SIZE + 56));
+        assertEquals(9, contents.getLong(HEADER_SIZE + 64));
+        assertEquals(10, contents.getLong(HEADER_SIZE + 72));
+    }
+
+    @Test
+    public void testCompactionDropsExpiredRecords() throws IOException {
+        final ByteBuffer contents = ByteBuffer.allocate(HEADER_SIZE + 2*RECORD_SIZE);
+        contents.putInt(0, MAGIC);
+        contents.putInt(4, 2);
+        contents.putInt(8, 2);
+        writeRecord(contents, HEADER_SIZE, "expired", today() - 31);
+        writeRecord(contents, HEADER_SIZE + RECORD_SIZE, "current", today() - 1);
+        write(contents);
+
+        store.open(directory);
+        assertEquals(1, read().getInt(8));
+        assertFalse(new File(directory, FILE_NAME + ".tmp").exists());
+
+        final EntityCounters current = new EntityCounters();
+        store.restore("current", current);
+        assertEquals(0, current.slot);
+        assertEquals(7, current.lifetimeCount);
+
+        final EntityCounters expired = new EntityCounters();
+        store.restore("expired", expired);
+        assertEquals(1, expired.slot);
+        assertEquals(0, expired.lifetimeCount);
+    }
+
+    @Test
+    public void testVersion1RecordsConverted() throws IOException {
+        final ByteBuffer contents = ByteBuffer.allocate(HEADER_SIZE + VERSION_1_RECORD_SIZE);
+        contents.putInt(0, MAGIC);
+        contents.putInt(4, 1);
+        contents.putInt(8, 1);
+        contents.putLong(HEADER_SIZE, ModelUtil.hash("service"));
+        contents.putLong(HEADER_SIZE + 48, 7);
+        write(contents);
+
+        store.open(directory);
+        final EntityCounters counters = new EntityCounters();
+        store.restore("service", counters);
+        assertEquals(0, counters.slot);
+        assertEquals(7, counters.lifetimeCount);
+        assertEquals(-1, counters.lifetimeMinTime);
+        assertEquals(0, counters.lifetimeMaxTime);
+        assertEquals(2, read().getInt(4));
+    }
+
+    private static void populate(final EntityCounters counters) {
+        counters.successCount = 1;
+        counters.faultCount = 2;
+        counters.count = 3;
+        counters.totalTime = 4;
+        counters.lifetimeSuccessCount = 5;
+        counters.lifetimeFaultCount = 6;
+        counters.lifetimeCount = 7;
+        counters.lifetimeTotalTime = 8;
+        counters.lifetimeMinTime = 9;
+        counters.lifetimeMaxTime = 10;
+    }
+
+    private static void writeRecord(final ByteBuffer contents, final int offset, final String key, final int lastWritten) {
+        contents.putLong(offset, ModelUtil.hash(key));
+        contents.putInt(offset + 20, lastWritten);
+        contents.putLong(offset + 48, 7);
+        contents.putLong(offset + 64, -1);
+    }
+
+    private static int today() {
+        return (int) (System.currentTimeMillis() / DAY);
+    }
+
+    private void write(final ByteBuffer contents) throws IOException {
+        final FileOutputStream output = new FileOutputStream(new File(directory, FILE_NAME));
+        try {
+            output.write(contents.array());
+        } finally {
+            output.close();
+        }
+    }
+
+    private ByteBuffer read() throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(new File(directory, FILE_NAME), "r");
+        try {
+            final byte[] contents = new byte[(int) input.length()];
+            input.readFully(contents);
+            return ByteBuffer.wrap(contents);
+        } finally {
+            input.close();
+        }
+    }
+}
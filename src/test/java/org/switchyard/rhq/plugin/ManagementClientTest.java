@@ -0,0 +1,160 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.rhq.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CIRCUIT_CLOSED;
+import static org.switchyard.rhq.plugin.SwitchYardConstants.CIRCUIT_OPEN;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rhq.modules.plugins.jbossas7.json.Operation;
+import org.switchyard.rhq.plugin.ManagementClient.Priority;
+import org.switchyard.rhq.plugin.operations.GetVersion;
+
+public class ManagementClientTest {
+    private static final long TIMEOUT = 1000;
+    private static final long OPEN_INTERVAL = 30*1000;
+
+    private final JsonNode response = new ObjectMapper().createObjectNode();
+    private TestClient client;
+
+    @Before
+    public void setUp() {
+        client = new TestClient();
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    public void testFailuresOpenCircuit() {
+        client.fail(3);
+        assertEquals(CIRCUIT_OPEN, client.getState());
+
+        assertNull(client.executeRaw(Priority.MEASUREMENT, new GetVersion()));
+        assertEquals(3, client.sends.get());
+    }
+
+    @Test
+    public void testSuccessResetsFailures() {
+        client.fail(2);
+        client.response = response;
+        assertSame(response, client.executeRaw(Priority.MEASUREMENT, new GetVersion()));
+        client.fail(2);
+        assertEquals(CIRCUIT_CLOSED, client.getState());
+    }
+
+    @Test
+    public void testSlowCallsOpenCircuit() {
+        client.response = response;
+        client.duration = (TIMEOUT / 2) + 1;
+        for (int count = 0; count < 3; count++) {
+            assertSame(response, client.executeRaw(Priority.MEASUREMENT, new GetVersion()));
+        }
+        assertEquals(CIRCUIT_OPEN, client.getState());
+    }
+
+    @Test
+    public void testProbeClosesCircuit() {
+        client.fail(3);
+        client.clock.addAndGet(OPEN_INTERVAL);
+        client.response = response;
+
+        assertSame(response, client.executeRaw(Priority.MEASUREMENT, new GetVersion()));
+        assertEquals(CIRCUIT_CLOSED, client.getState());
+        assertEquals(5, client.sends.get());
+    }
+
+    @Test
+    public void testFailedProbeDoublesOpenInterval() {
+        client.fail(3);
+        client.clock.addAndGet(OPEN_INTERVAL);
+        assertNull(client.executeRaw(Priority.MEASUREMENT, new GetVersion()));
+        assertEquals(CIRCUIT_OPEN, client.getState());
+        assertEquals(4, client.sends.get());
+
+        client.clock.addAndGet(OPEN_INTERVAL);
+        assertNull(client.executeRaw(Priority.MEASUREMENT, new GetVersion()));
+        assertEquals(4, client.sends.get());
+
+        client.clock.addAndGet(OPEN_INTERVAL);
+        client.response = response;
+        assertSame(response, client.executeRaw(Priority.MEASUREMENT, new GetVersion()));
+        assertEquals(CIRCUIT_CLOSED, client.getState());
+    }
+
+    @Test
+    public void testHungCallAbandoned() {
+        client.response = response;
+        client.hang = TIMEOUT * 10;
+        final long start = System.currentTimeMillis();
+        assertNull(client.executeRaw(Priority.MEASUREMENT, new GetVersion()));
+        assertTrue(System.currentTimeMillis() - start < client.hang);
+        assertEquals(1, client.getTimeouts());
+        assertEquals(CIRCUIT_CLOSED, client.getState());
+    }
+
+    /**
+     * A client answering from the test rather than a server, timed by a clock which only moves when told.
+     */
+    private static class TestClient extends ManagementClient {
+        private final AtomicLong clock = new AtomicLong(1000000);
+        private final AtomicInteger sends = new AtomicInteger();
+        private volatile JsonNode response;
+        private volatile long duration;
+        private volatile long hang;
+
+        TestClient() {
+            super(null, TIMEOUT, 4, 1000);
+        }
+
+        void fail(final int calls) {
+            response = null;
+            for (int count = 0; count < calls; count++) {
+                assertNull(executeRaw(Priority.MEASUREMENT, new GetVersion()));
+            }
+        }
+
+        @Override
+        JsonNode send(final Operation operation) {
+            sends.incrementAndGet();
+            clock.addAndGet(duration);
+            if (hang > 0) {
+                try {
+                    Thread.sleep(hang);
+                } catch (final InterruptedException ie) {
+                    return null;
+                }
+            }
+            return response;
+        }
+
+        @Override
+        long now() {
+            return clock.get();
+        }
+    }
+}